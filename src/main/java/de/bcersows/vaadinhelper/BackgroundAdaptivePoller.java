@@ -0,0 +1,362 @@
+package de.bcersows.vaadinhelper;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import com.vaadin.flow.component.ComponentUtil;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
+import com.vaadin.flow.shared.Registration;
+
+import de.bcersows.vaadinhelper.BackgroundLoadingHelper.DataLoadingInterface;
+import de.bcersows.vaadinhelper.BackgroundLoadingHelper.RevalidationOperation;
+import de.bcersows.vaadinhelper.BackgroundOperationManager.RestServiceException;
+import de.bcersows.vaadinhelper.BackgroundOperationManager.UpdateUiInterface;
+import de.bcersows.vaadinhelper.BackgroundOperationManager.UpdateUiOnErrorInterface;
+import de.bcersows.vaadinhelper.helpers.NotificationHelper;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Polls data for a UI with an adaptive interval: the interval drops to the minimum whenever the data changed, and doubles up to the maximum while it
+ * doesn't. Polling pauses while the browser tab is hidden (forwarded from the Page Visibility API) or the user was idle for the idle timeout, and resumes
+ * with an immediate poll once the tab is shown or the user interacts again.<br/>
+ * Polls run in latest-wins mode without the loading indicator, and unchanged data isn't applied again. Stops when the UI is detached. All methods must be
+ * called with the UI being locked; requires server push to be enabled.
+ *
+ * <pre>
+ * final var poller = new BackgroundAdaptivePoller&lt;Status&gt;(Duration.ofSeconds(2), Duration.ofMinutes(1), statusService::getStatus, this::showStatus);
+ * poller.start();
+ * </pre>
+ *
+ * @author bcersows
+ * @param <R>
+ *            the data type
+ */
+@Slf4j
+public class BackgroundAdaptivePoller<R> {
+    /** The factor to increase the interval by while the data doesn't change. **/
+    private static final int BACKOFF_FACTOR = 2;
+    /** The default time without user interaction before the UI counts as idle. **/
+    private static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(5);
+
+    /** The UI the poller belongs to. **/
+    @NonNull
+    private final UI ui;
+    /** The interval while the data changes. **/
+    @NonNull
+    private final Duration minInterval;
+    /** The interval to back off to while the data doesn't change. **/
+    @NonNull
+    private final Duration maxInterval;
+    /** The task loading the data. **/
+    @NonNull
+    private final DataLoadingInterface<R> loadDataTask;
+    /** The task to update the UI on changed data. **/
+    @NonNull
+    private final UpdateUiInterface<R> updateUiTask;
+    /** The task to update the UI on error. **/
+    @Nullable
+    private final UpdateUiOnErrorInterface updateUiOnErrorTask;
+    /** The visibility and activity of the UI. **/
+    @NonNull
+    private final UiActivity uiActivity;
+    /** The latest-wins slot of the polls. **/
+    @NonNull
+    private final Object latestSlot = new Object();
+
+    /** The time without user interaction before pausing. **/
+    @NonNull
+    private Duration idleTimeout = DEFAULT_IDLE_TIMEOUT;
+    /** The current interval. **/
+    @NonNull
+    private Duration currentInterval;
+    /** If data was loaded already. **/
+    private boolean loaded;
+    /** The latest loaded data. **/
+    @Nullable
+    private R latestData;
+    /** If polling was started. **/
+    private boolean running;
+    /** If polling is paused because the UI is hidden or idle. **/
+    private boolean paused;
+    /** The running poll, if any. **/
+    @Nullable
+    private Object runningPoll;
+    /** The scheduled next poll, if any. **/
+    @Nullable
+    private ScheduledFuture<?> scheduledPoll;
+    /** The registration to resume on visibility or activity, while running. **/
+    @Nullable
+    private Registration resumeRegistration;
+
+    /**
+     * Create an instance for the current UI. Errors are shown as notification.
+     *
+     * @param minInterval
+     *            the interval while the data changes
+     * @param maxInterval
+     *            the interval to back off to while the data doesn't change
+     * @param loadDataTask
+     *            task/provider to actually load the data<br/>
+     *            <strong>This task shall not access the UI elements in any way! In case of a problem, throw the appropriate exception!</strong>
+     * @param updateUiTask
+     *            task/consumer to display the UI with changed data
+     */
+    public BackgroundAdaptivePoller(@NonNull final Duration minInterval, @NonNull final Duration maxInterval,
+            @NonNull final DataLoadingInterface<R> loadDataTask, @NonNull final UpdateUiInterface<R> updateUiTask) {
+        this(minInterval, maxInterval, loadDataTask, updateUiTask, null);
+    }
+
+    /**
+     * Create an instance for the current UI.
+     *
+     * @param minInterval
+     *            the interval while the data changes
+     * @param maxInterval
+     *            the interval to back off to while the data doesn't change
+     * @param loadDataTask
+     *            task/provider to actually load the data<br/>
+     *            <strong>This task shall not access the UI elements in any way! In case of a problem, throw the appropriate exception!</strong>
+     * @param updateUiTask
+     *            task/consumer to display the UI with changed data
+     * @param updateUiOnErrorTask
+     *            if provided, will be called in the error case instead of showing a notification. Allows for modification on the UI.
+     */
+    public BackgroundAdaptivePoller(@NonNull final Duration minInterval, @NonNull final Duration maxInterval,
+            @NonNull final DataLoadingInterface<R> loadDataTask, @NonNull final UpdateUiInterface<R> updateUiTask,
+            @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask) {
+        final var currentUi = UI.getCurrent();
+        if (null == currentUi) {
+            throw new IllegalStateException("Adaptive polling must be created from a valid UI location.");
+        }
+
+        this.ui = currentUi;
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+        this.loadDataTask = loadDataTask;
+        this.updateUiTask = updateUiTask;
+        this.updateUiOnErrorTask = updateUiOnErrorTask;
+        this.uiActivity = UiActivity.get(currentUi);
+        this.currentInterval = minInterval;
+
+        this.ui.addDetachListener(event -> stop());
+    }
+
+    /** Set the time without user interaction before pausing. Defaults to 5 minutes. **/
+    public void setIdleTimeout(@NonNull final Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    /** Start polling, with a poll right away. **/
+    public void start() {
+        if (this.running) {
+            return;
+        }
+
+        this.running = true;
+        this.resumeRegistration = this.uiActivity.addResumeListener(this::resume);
+        poll();
+    }
+
+    /** Stop polling. **/
+    public void stop() {
+        this.running = false;
+        this.paused = false;
+        cancelScheduledPoll();
+        if (null != this.resumeRegistration) {
+            this.resumeRegistration.remove();
+            this.resumeRegistration = null;
+        }
+    }
+
+    /** Get the current interval. **/
+    @NonNull
+    public Duration getCurrentInterval() {
+        return this.currentInterval;
+    }
+
+    /** Check if polling is paused because the UI is hidden or idle. **/
+    public boolean isPaused() {
+        return this.paused;
+    }
+
+    /** Poll, unless the UI is hidden or idle. **/
+    private void poll() {
+        if (!this.running) {
+            return;
+        }
+        if (this.uiActivity.hidden || this.uiActivity.isIdle(this.idleTimeout)) {
+            log.debug("UI hidden or idle, pausing polling.");
+            this.paused = true;
+            return;
+        }
+
+        final var pollOperation = new RevalidationOperation<R>(this.loadDataTask, this::handleData, this::handleError, this.latestSlot) {
+            @Override
+            protected void postOperationFinish(final boolean succeeded) {
+                // however the poll ended, e.g. also if it failed unexpectedly or was rejected; runs after its UI update
+                try {
+                    BackgroundAdaptivePoller.this.ui.access(() -> finishPoll(this, succeeded));
+                } catch (final UIDetachedException e) {
+                    log.debug("UI detached, stopping polling.");
+                }
+            }
+        };
+        this.runningPoll = pollOperation;
+        pollOperation.startBackgroundOperation();
+    }
+
+    /** Resume polling right away after the UI was shown or used again. **/
+    private void resume() {
+        if (!this.paused || this.uiActivity.hidden || this.uiActivity.isIdle(this.idleTimeout)) {
+            return;
+        }
+
+        log.debug("UI visible and active again, resuming polling.");
+        this.paused = false;
+        poll();
+    }
+
+    /** Apply changed data and adapt the interval. **/
+    private void handleData(@Nullable final R data) {
+        if (!this.loaded || !Objects.equals(this.latestData, data)) {
+            this.loaded = true;
+            this.latestData = data;
+            this.currentInterval = this.minInterval;
+            this.updateUiTask.updateUi(data);
+        } else {
+            backOff();
+        }
+    }
+
+    /** Handle the error; backing off is done once the poll finished. **/
+    private void handleError(@NonNull final RestServiceException restServiceException) {
+        if (null != this.updateUiOnErrorTask) {
+            this.updateUiOnErrorTask.runOnUiAfterError(restServiceException);
+        } else {
+            NotificationHelper.showException(restServiceException.getUserMessage(), restServiceException);
+        }
+    }
+
+    /** Back off if the poll failed, and schedule the next poll; unless a newer poll was started meanwhile. **/
+    private void finishPoll(@NonNull final Object poll, final boolean succeeded) {
+        if (poll != this.runningPoll) {
+            return;
+        }
+
+        this.runningPoll = null;
+        if (!succeeded) {
+            backOff();
+        }
+        scheduleNextPoll();
+    }
+
+    /** Increase the interval, up to the maximum. **/
+    private void backOff() {
+        final var increasedInterval = this.currentInterval.multipliedBy(BACKOFF_FACTOR);
+        this.currentInterval = increasedInterval.compareTo(this.maxInterval) > 0 ? this.maxInterval : increasedInterval;
+    }
+
+    /** Schedule the next poll after the current interval. **/
+    private void scheduleNextPoll() {
+        cancelScheduledPoll();
+        if (this.running) {
+            this.scheduledPoll = BackgroundLoadingIndicator.SCHEDULER.schedule(this::schedulePoll, this.currentInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Poll from the scheduler thread. **/
+    private void schedulePoll() {
+        try {
+            this.ui.access(this::poll);
+        } catch (final UIDetachedException e) {
+            log.debug("UI detached, stopping polling.");
+        }
+    }
+
+    /** Cancel the scheduled poll, if any. **/
+    private void cancelScheduledPoll() {
+        if (null != this.scheduledPoll) {
+            this.scheduledPoll.cancel(false);
+            this.scheduledPoll = null;
+        }
+    }
+
+    /**
+     * The visibility of the browser tab and the user activity of a UI, shared by its pollers. Forwards the Page Visibility API and throttled user
+     * interactions to the server. Only accessed with the UI being locked.
+     */
+    static final class UiActivity {
+        /** The event forwarded on visibility changes of the page. **/
+        static final String EVENT_VISIBILITY_CHANGE = "background-visibility-change";
+        /** The event data containing if the page is hidden. **/
+        static final String DATA_HIDDEN = "document.hidden";
+        /** The user interactions marking the UI as active. **/
+        private static final List<String> ACTIVITY_EVENTS = List.of("pointerdown", "keydown", "wheel");
+        /** The period to forward user interactions at most once in. **/
+        private static final int ACTIVITY_THROTTLE_MS = 10_000;
+
+        /** The listeners to call once the UI is shown or used again. **/
+        @NonNull
+        private final Set<Runnable> resumeListeners = new CopyOnWriteArraySet<>();
+        /** If the page is hidden. **/
+        private boolean hidden;
+        /** The time of the last user interaction, in nanoseconds. **/
+        private long lastActivityNanos = System.nanoTime();
+
+        /** Get the activity of the UI, forwarding the events on first use. **/
+        @NonNull
+        static UiActivity get(@NonNull final UI ui) {
+            var uiActivity = ComponentUtil.getData(ui, UiActivity.class);
+            if (null == uiActivity) {
+                uiActivity = new UiActivity();
+                uiActivity.install(ui);
+                ComponentUtil.setData(ui, UiActivity.class, uiActivity);
+            }
+            return uiActivity;
+        }
+
+        /** Forward the visibility changes and the user interactions of the UI. **/
+        private void install(@NonNull final UI ui) {
+            final var element = ui.getElement();
+            ui.getPage().executeJs("const element = $0; document.addEventListener('visibilitychange', () => element.dispatchEvent(new CustomEvent($1)));",
+                    element, EVENT_VISIBILITY_CHANGE);
+            element.addEventListener(EVENT_VISIBILITY_CHANGE, event -> {
+                this.hidden = event.getEventData().getBoolean(DATA_HIDDEN);
+                if (!this.hidden) {
+                    resume();
+                }
+            }).addEventData(DATA_HIDDEN);
+
+            ACTIVITY_EVENTS.forEach(eventType -> element.addEventListener(eventType, event -> {
+                this.lastActivityNanos = System.nanoTime();
+                resume();
+            }).throttle(ACTIVITY_THROTTLE_MS));
+        }
+
+        /** Check if there was no user interaction within the idle timeout. **/
+        private boolean isIdle(@NonNull final Duration idleTimeout) {
+            return System.nanoTime() - this.lastActivityNanos > idleTimeout.toNanos();
+        }
+
+        /** Add a listener to call once the UI is shown or used again. **/
+        @NonNull
+        private Registration addResumeListener(@NonNull final Runnable resumeListener) {
+            this.resumeListeners.add(resumeListener);
+            return () -> this.resumeListeners.remove(resumeListener);
+        }
+
+        /** Notify the listeners. **/
+        private void resume() {
+            this.resumeListeners.forEach(Runnable::run);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package de.bcersows.vaadinhelper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
+
+import de.bcersows.vaadinhelper.BackgroundLoadingHelper.BackgroundLoadingException;
+import de.bcersows.vaadinhelper.BackgroundLoadingHelper.BackgroundLoadingOperation;
+import de.bcersows.vaadinhelper.BackgroundOperationManager.RestServiceException;
+import de.bcersows.vaadinhelper.BackgroundOperationManager.UpdateUiInterface;
+import de.bcersows.vaadinhelper.BackgroundOperationManager.UpdateUiOnErrorInterface;
+import de.bcersows.vaadinhelper.helpers.NotificationHelper;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A batching loader for per-entity loads, e.g. a lookup per grid row or per {@link UiBinder} runnable. All keys requested while the UI is locked (e.g.
+ * during one render) are collected and loaded with a single background loading afterwards; the results are then distributed to the requesters.<br/>
+ * Loaded values are memoized for the lifetime of the loader, so create one per view or render pass (or {@link #clear()} it). All methods must be called
+ * with the UI being locked.
+ *
+ * <pre>
+ * final var departmentLoader = new BackgroundBatchLoader&lt;Long, Department&gt;(departmentService::findByIds);
+ * binder.setRunnable(person -&gt; departmentLoader.load(person.getDepartmentId(), department -&gt; departmentLabel.setText(department.getName())));
+ * </pre>
+ *
+ * @author bcersows
+ * @param <K>
+ *            the key type
+ * @param <V>
+ *            the value type
+ */
+@Slf4j
+public class BackgroundBatchLoader<K, V> {
+    /** The UI the loader belongs to. **/
+    @NonNull
+    private final UI ui;
+    /** The task loading a batch of keys. **/
+    @NonNull
+    private final BatchLoadingInterface<K, V> batchLoadingTask;
+    /** The task to update the UI on error. **/
+    @Nullable
+    private final UpdateUiOnErrorInterface updateUiOnErrorTask;
+
+    /** The requested keys waiting for the next batch, with their requesters. **/
+    @NonNull
+    private Map<K, List<UpdateUiInterface<V>>> queuedKeys = new LinkedHashMap<>();
+    /** The keys of running batches, with their requesters. **/
+    @NonNull
+    private final Map<K, List<UpdateUiInterface<V>>> loadingKeys = new HashMap<>();
+    /** The memoized values. **/
+    @NonNull
+    private final Map<K, V> loadedValues = new HashMap<>();
+    /** If the next batch was scheduled already. **/
+    private boolean batchScheduled;
+
+    /**
+     * Create an instance for the current UI. Errors are shown as notification.
+     *
+     * @param batchLoadingTask
+     *            task/provider to load a batch of keys<br/>
+     *            <strong>This task shall not access the UI elements in any way! In case of a problem, throw the appropriate exception!</strong>
+     */
+    public BackgroundBatchLoader(@NonNull final BatchLoadingInterface<K, V> batchLoadingTask) {
+        this(batchLoadingTask, null);
+    }
+
+    /**
+     * Create an instance for the current UI.
+     *
+     * @param batchLoadingTask
+     *            task/provider to load a batch of keys<br/>
+     *            <strong>This task shall not access the UI elements in any way! In case of a problem, throw the appropriate exception!</strong>
+     * @param updateUiOnErrorTask
+     *            if provided, will be called once per failed batch instead of showing a notification
+     */
+    public BackgroundBatchLoader(@NonNull final BatchLoadingInterface<K, V> batchLoadingTask, @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask) {
+        final var currentUi = UI.getCurrent();
+        if (null == currentUi) {
+            throw new IllegalStateException("Batch loader must be created from a valid UI location.");
+        }
+
+        this.ui = currentUi;
+        this.batchLoadingTask = batchLoadingTask;
+        this.updateUiOnErrorTask = updateUiOnErrorTask;
+    }
+
+    /**
+     * Request the value of the given key. It's loaded with all other keys requested until the UI is unlocked; memoized values are passed right away.
+     *
+     * @param key
+     *            the key to load
+     * @param updateUiTask
+     *            task/consumer to update the UI with the value; it's {@code null} if the batch didn't contain the key
+     */
+    public void load(@NonNull final K key, @NonNull final UpdateUiInterface<V> updateUiTask) {
+        if (this.loadedValues.containsKey(key)) {
+            updateUiTask.updateUi(this.loadedValues.get(key));
+            return;
+        }
+
+        // already being loaded, just wait for it
+        final var loadingRequesters = this.loadingKeys.get(key);
+        if (null != loadingRequesters) {
+            loadingRequesters.add(updateUiTask);
+            return;
+        }
+
+        this.queuedKeys.computeIfAbsent(key, queuedKey -> new ArrayList<>()).add(updateUiTask);
+        if (!this.batchScheduled) {
+            // runs once the current request or access released the lock
+            this.batchScheduled = true;
+            this.ui.access(this::dispatch);
+        }
+    }
+
+    /** Forget all memoized values, e.g. to reload after a change. **/
+    public void clear() {
+        this.loadedValues.clear();
+    }
+
+    /** Load all queued keys in a single background loading. **/
+    private void dispatch() {
+        this.batchScheduled = false;
+        final var batch = this.queuedKeys;
+        this.queuedKeys = new LinkedHashMap<>();
+        if (batch.isEmpty()) {
+            return;
+        }
+        this.loadingKeys.putAll(batch);
+
+        final Set<K> keys = new LinkedHashSet<>(batch.keySet());
+        log.debug("Loading batch of {} keys.", keys.size());
+        new BackgroundLoadingOperation<Map<K, V>>(() -> this.batchLoadingTask.loadBatch(keys), loadedBatch -> {
+            // distribute the values to all requesters, including the ones that joined in-between
+            for (final var key : keys) {
+                final var value = null != loadedBatch ? loadedBatch.get(key) : null;
+                this.loadedValues.put(key, value);
+                Optional.ofNullable(this.loadingKeys.remove(key)).ifPresent(requesters -> requesters.forEach(requester -> requester.updateUi(value)));
+            }
+        }, null, restServiceException -> {
+            // the keys can be requested again
+            releaseKeys(batch);
+
+            if (null != this.updateUiOnErrorTask) {
+                this.updateUiOnErrorTask.runOnUiAfterError(restServiceException);
+            } else {
+                NotificationHelper.showException(restServiceException.getUserMessage(), restServiceException);
+            }
+        }, null) {
+            @Override
+            protected void postOperationFinish(final boolean succeeded) {
+                // however the batch ended, e.g. also if it failed unexpectedly or was rejected, its keys can be requested again; runs after the UI update
+                try {
+                    BackgroundBatchLoader.this.ui.access(() -> releaseKeys(batch));
+                } catch (final UIDetachedException e) {
+                    log.debug("UI detached, not releasing the keys of the batch.");
+                }
+            }
+        }.startBackgroundOperation();
+    }
+
+    /** Release the keys still loaded by the given batch; keys loaded by a later batch meanwhile are kept. Must be called with the UI being locked. **/
+    private void releaseKeys(@NonNull final Map<K, List<UpdateUiInterface<V>>> batch) {
+        batch.forEach((key, requesters) -> {
+            if (this.loadingKeys.get(key) == requesters) {
+                this.loadingKeys.remove(key);
+            }
+        });
+    }
+
+    /** Interface for loading a batch of keys in the background. **/
+    @FunctionalInterface
+    public static interface BatchLoadingInterface<K, V> {
+        /**
+         * Load the values of the given keys.
+         *
+         * @param keys
+         *            the keys to load
+         * @return the loaded values per key; missing keys are passed as {@code null}
+         * @throws BackgroundLoadingException
+         *             if an exception happened while loading; the contained user message will be displayed to the user
+         * @throws RestServiceException
+         *             if an exception happened during the rest call.
+         **/
+        @Nullable
+        Map<K, V> loadBatch(@NonNull Set<K> keys) throws BackgroundLoadingException, RestServiceException;
+    }
+}
@@ -0,0 +1,146 @@
+package de.bcersows.vaadinhelper;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import com.vaadin.flow.server.VaadinSession;
+
+import de.bcersows.vaadinhelper.BackgroundUpdateHelper.BackgroundUpdateConfiguration;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Links the cached results of background loads to invalidation tags, e.g. {@code "customer:42"}: an update invalidating a tag (see
+ * {@link BackgroundUpdateConfiguration#invalidating(String...)}) evicts the matching cached results of the session, or writes the returned entity through
+ * to them. Covers the session-wide operations and view state snapshots of the {@link BackgroundLoadingHelper}, and the data prefetched by the
+ * {@link BackgroundRoutePreloader}.
+ *
+ * @author bcersows
+ */
+@Slf4j
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class BackgroundCacheInvalidation {
+    /** The session attribute for the tagged cache entries. **/
+    private static final String ATTRIBUTE_TAGGED_ENTRIES = BackgroundCacheInvalidation.class.getName() + ".taggedEntries";
+
+    /**
+     * Evict the cached results of the current session tagged with any of the given tags, e.g. after an update not done using the
+     * {@link BackgroundUpdateHelper}. Must be called with the session being locked.
+     *
+     * @param tags
+     *            the tags to invalidate
+     */
+    public static void invalidate(@NonNull final String... tags) {
+        final var session = VaadinSession.getCurrent();
+        if (null == session) {
+            throw new IllegalStateException("Invalidation must be triggered from a valid UI location.");
+        }
+
+        invalidate(session, List.of(tags), null);
+    }
+
+    /**
+     * Invalidate the cached results of the session tagged with any of the given tags: the written entity replaces the cached results of the same type, all
+     * others are evicted. Must be called with the session being locked.
+     *
+     * @param session
+     *            the session of the cached results
+     * @param tags
+     *            the tags to invalidate
+     * @param writtenEntity
+     *            the entity returned by the update to write through, or {@code null} to evict all
+     */
+    static void invalidate(@NonNull final VaadinSession session, @NonNull final Collection<String> tags, @Nullable final Object writtenEntity) {
+        final var taggedEntries = getTaggedEntries(session);
+        final Set<CachedEntry> evictedEntries = new HashSet<>();
+        for (final var tag : tags) {
+            final var entries = taggedEntries.get(tag);
+            if (null == entries) {
+                continue;
+            }
+
+            for (final var entry : entries) {
+                if (!entry.isCached() || null == writtenEntity || !entry.writeThrough(writtenEntity)) {
+                    entry.evict();
+                    evictedEntries.add(entry);
+                }
+            }
+        }
+
+        log.debug("Invalidated {}, evicting {} cached results.", tags, evictedEntries.size());
+        taggedEntries.values().forEach(entries -> entries.removeAll(evictedEntries));
+        taggedEntries.values().removeIf(Set::isEmpty);
+    }
+
+    /**
+     * Tag the cached entry of the session. Must be called with the session being locked.
+     *
+     * @param session
+     *            the session of the cached entry
+     * @param tags
+     *            the tags of the entry; nothing is registered if empty
+     * @param entry
+     *            the cached entry
+     */
+    static void register(@NonNull final VaadinSession session, @NonNull final Collection<String> tags, @NonNull final CachedEntry entry) {
+        if (tags.isEmpty()) {
+            return;
+        }
+
+        final var taggedEntries = getTaggedEntries(session);
+        // forget entries no longer cached, e.g. expired ones
+        taggedEntries.values().forEach(entries -> entries.removeIf(taggedEntry -> !taggedEntry.isCached()));
+        taggedEntries.values().removeIf(Set::isEmpty);
+
+        for (final var tag : tags) {
+            taggedEntries.computeIfAbsent(tag, key -> new HashSet<>()).add(entry);
+        }
+    }
+
+    /**
+     * Check if the written entity can replace the cached value: it must be of the same type.
+     */
+    static boolean canWriteThrough(@Nullable final Object cachedValue, @NonNull final Object writtenEntity) {
+        return null != cachedValue && cachedValue.getClass().isInstance(writtenEntity);
+    }
+
+    /**
+     * Get the tagged entries of the session. Must be called with the session being locked.
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    private static Map<String, Set<CachedEntry>> getTaggedEntries(@NonNull final VaadinSession session) {
+        var taggedEntries = (Map<String, Set<CachedEntry>>) session.getAttribute(ATTRIBUTE_TAGGED_ENTRIES);
+        if (null == taggedEntries) {
+            taggedEntries = new HashMap<>();
+            session.setAttribute(ATTRIBUTE_TAGGED_ENTRIES, taggedEntries);
+        }
+        return taggedEntries;
+    }
+
+    /** A cached result that can be invalidated. All methods are called with the session being locked. **/
+    static interface CachedEntry {
+        /** If the entry is still cached. **/
+        boolean isCached();
+
+        /** Evict the entry from its cache. **/
+        void evict();
+
+        /**
+         * Replace the cached value with the written entity, if possible.
+         *
+         * @param writtenEntity
+         *            the entity returned by the update
+         * @return if the entity was written through; otherwise the entry is evicted
+         */
+        boolean writeThrough(@NonNull Object writtenEntity);
+    }
+}
@@ -0,0 +1,322 @@
+package de.bcersows.vaadinhelper;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.MDC;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import de.bcersows.vaadinhelper.BackgroundLoadingHelper.BackgroundLoadingException;
+import de.bcersows.vaadinhelper.BackgroundOperationManager.DataHandlingInterface;
+import de.bcersows.vaadinhelper.BackgroundOperationManager.RestServiceException;
+import de.bcersows.vaadinhelper.helpers.TracingHelper;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A hedging policy for idempotent loads against replicated backends: if the first attempt didn't return within the p95 latency of the operation, a second
+ * attempt is started and whichever finishes first is used; the other one is cancelled.<br/>
+ * The latency is tracked in a histogram per operation; hedging only starts after enough samples were recorded. A budget caps the hedged attempts to a
+ * ratio of all loads, so hedging can't double the load on the backend when it's slow overall. Loads that can't be hedged run in the calling thread; the
+ * attempts of the others run in a bounded pool, and without hedging if it's exhausted.
+ *
+ * @author bcersows
+ */
+@Slf4j
+public class BackgroundHedgingPolicy {
+    /** The max amount of attempts running in parallel. **/
+    private static final int MAX_ATTEMPT_THREADS = 32;
+    /** The executor running the attempts; rejects them if all threads are busy. **/
+    private static final ThreadPoolExecutor ATTEMPT_EXECUTOR = new ThreadPoolExecutor(0, MAX_ATTEMPT_THREADS, 60, TimeUnit.SECONDS,
+            new SynchronousQueue<>(), runnable -> {
+                final var thread = new Thread(runnable, "background-data-attempt");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /** The percentile to hedge after. **/
+    private static final double HEDGE_PERCENTILE = 0.95;
+    /** The amount of samples of an operation before hedging it. **/
+    private static final int MIN_SAMPLES = 20;
+    /** The max amount of unused hedges that can be saved up. **/
+    private static final double MAX_BUDGET = 10;
+
+    /** The max ratio of hedged loads. **/
+    @Getter
+    private final double maxHedgeRatio;
+    /** The latency histograms per operation. **/
+    @NonNull
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    /** The hedges currently available. **/
+    private double budget;
+
+    /**
+     * Create an instance.
+     *
+     * @param maxHedgeRatio
+     *            the max ratio of loads that may be hedged, e.g. {@code 0.05} for 5%
+     */
+    public BackgroundHedgingPolicy(final double maxHedgeRatio) {
+        if (maxHedgeRatio <= 0 || maxHedgeRatio > 1) {
+            throw new IllegalArgumentException("Hedge ratio must be in (0, 1].");
+        }
+
+        this.maxHedgeRatio = maxHedgeRatio;
+    }
+
+    /**
+     * Run the idempotent data task, hedging it if it's slow. Must be called in the background thread, as it blocks until the result is available.
+     *
+     * @param operationName
+     *            the name of the operation to track the latency for
+     * @param dataTask
+     *            the idempotent task; may run twice in parallel
+     * @return the result of the first successful attempt
+     * @throws RestServiceException
+     *             if all attempts failed
+     * @throws CancellationException
+     *             if the calling thread was interrupted while waiting for the attempts
+     */
+    @Nullable
+    public <R> R load(@NonNull final String operationName, @NonNull final DataHandlingInterface<R> dataTask) throws RestServiceException {
+        final var histogram = this.histograms.computeIfAbsent(operationName, key -> new LatencyHistogram());
+        final var hedgeDelay = histogram.getPercentile(HEDGE_PERCENTILE);
+        addBudget();
+
+        // no second thread needed if the load can't be hedged anyway
+        if (null == hedgeDelay || !hasBudget()) {
+            return loadDirectly(dataTask, histogram);
+        }
+
+        final var completionService = new ExecutorCompletionService<R>(ATTEMPT_EXECUTOR);
+        final var primaryStart = System.nanoTime();
+        final Future<R> primaryAttempt;
+        try {
+            primaryAttempt = completionService.submit(createAttempt(dataTask));
+        } catch (final RejectedExecutionException e) {
+            log.debug("All attempt threads are busy, loading {} without hedging.", operationName);
+            return loadDirectly(dataTask, histogram);
+        }
+
+        Future<R> hedgedAttempt = null;
+        try {
+            var completedAttempt = completionService.poll(hedgeDelay.toNanos(), TimeUnit.NANOSECONDS);
+            long hedgeStart = 0;
+            if (null == completedAttempt && tryTakeBudget()) {
+                try {
+                    hedgeStart = System.nanoTime();
+                    hedgedAttempt = completionService.submit(createAttempt(dataTask));
+                    log.debug("Hedging {} after {}.", operationName, hedgeDelay);
+                } catch (final RejectedExecutionException e) {
+                    log.debug("All attempt threads are busy, not hedging {}.", operationName);
+                    returnBudget();
+                }
+            }
+
+            // use the first successful attempt; only fail if all failed
+            ExecutionException lastFailure = null;
+            for (int remaining = null == hedgedAttempt ? 1 : 2; remaining > 0; remaining--) {
+                if (null == completedAttempt) {
+                    completedAttempt = completionService.take();
+                }
+                try {
+                    final var result = completedAttempt.get();
+                    final var now = System.nanoTime();
+                    if (completedAttempt == primaryAttempt) {
+                        histogram.record(now - primaryStart);
+                    } else {
+                        histogram.record(now - hedgeStart);
+                        // the losing primary takes at least as long as it ran so far, so record that as a censored sample; dropping it would bias the
+                        // percentile low. A losing hedge is never recorded, as it started late and its time so far says nothing about the latency.
+                        if (!primaryAttempt.isDone()) {
+                            histogram.record(now - primaryStart);
+                        }
+                    }
+                    return result;
+                } catch (final ExecutionException e) {
+                    lastFailure = e;
+                    completedAttempt = null;
+                }
+            }
+            throw unwrap(lastFailure);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            final var cancellationException = new CancellationException("Hedged load was interrupted.");
+            cancellationException.initCause(e);
+            throw cancellationException;
+        } finally {
+            // cancel the slower attempt
+            primaryAttempt.cancel(true);
+            if (null != hedgedAttempt) {
+                hedgedAttempt.cancel(true);
+            }
+        }
+    }
+
+    /** Get the current hedge delay of the operation, if enough samples were recorded. **/
+    @Nullable
+    public Duration getHedgeDelay(@NonNull final String operationName) {
+        final var histogram = this.histograms.get(operationName);
+        return null != histogram ? histogram.getPercentile(HEDGE_PERCENTILE) : null;
+    }
+
+    /** Run the data task in the calling thread, recording its latency on success. **/
+    @Nullable
+    private static <R> R loadDirectly(@NonNull final DataHandlingInterface<R> dataTask, @NonNull final LatencyHistogram histogram)
+            throws RestServiceException {
+        final var start = System.nanoTime();
+        final var result = dataTask.handleData();
+        histogram.record(System.nanoTime() - start);
+        return result;
+    }
+
+    /** Create an attempt running the data task with the context of the current thread. **/
+    @NonNull
+    private static <R> Callable<R> createAttempt(@NonNull final DataHandlingInterface<R> dataTask) {
+        final var securityContext = SecurityContextHolder.getContext();
+        final var requestContext = RequestContextHolder.getRequestAttributes();
+        final var mdcContext = MDC.getCopyOfContextMap();
+        final var span = TracingHelper.getCurrentSpan();
+
+        return () -> {
+            SecurityContextHolder.setContext(securityContext);
+            RequestContextHolder.setRequestAttributes(requestContext);
+            if (null != mdcContext) {
+                MDC.setContextMap(mdcContext);
+            }
+            try (final var scope = TracingHelper.activate(span)) {
+                return dataTask.handleData();
+            } finally {
+                SecurityContextHolder.clearContext();
+                RequestContextHolder.resetRequestAttributes();
+                MDC.clear();
+            }
+        };
+    }
+
+    /** Unwrap the failure of an attempt. **/
+    @NonNull
+    private static RestServiceException unwrap(@NonNull final ExecutionException executionException) {
+        final var cause = executionException.getCause();
+        if (cause instanceof RestServiceException) {
+            return (RestServiceException) cause;
+        } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new BackgroundLoadingException("Hedged load failed.", "The data could not be loaded.", cause);
+    }
+
+    /** Earn the share of a hedge for another load. **/
+    private synchronized void addBudget() {
+        this.budget = Math.min(MAX_BUDGET, this.budget + this.maxHedgeRatio);
+    }
+
+    /** If a hedge is available. **/
+    private synchronized boolean hasBudget() {
+        return this.budget >= 1;
+    }
+
+    /** Give back a taken hedge that could not be started. **/
+    private synchronized void returnBudget() {
+        this.budget = Math.min(MAX_BUDGET, this.budget + 1);
+    }
+
+    /** Take a hedge from the budget, if available. **/
+    private synchronized boolean tryTakeBudget() {
+        if (this.budget < 1) {
+            return false;
+        }
+        this.budget -= 1;
+        return true;
+    }
+
+    /**
+     * A lock-free latency histogram with exponential buckets. The counts are halved regularly, so it follows changes of the latency.
+     *
+     * @author bcersows
+     */
+    static final class LatencyHistogram {
+        /** The amount of buckets per power of two. **/
+        private static final int BUCKETS_PER_DOUBLING = 4;
+        /** The amount of buckets; covers up to about 65s. **/
+        private static final int BUCKET_COUNT = 16 * BUCKETS_PER_DOUBLING + 1;
+        /** The amount of samples after which the counts are halved. **/
+        private static final int DECAY_SAMPLES = 1000;
+
+        /** The counts per bucket. **/
+        @NonNull
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+        /** Record a latency. **/
+        void record(final long nanos) {
+            this.counts.incrementAndGet(toBucket(TimeUnit.NANOSECONDS.toMicros(nanos)));
+            if (getTotal() >= DECAY_SAMPLES) {
+                decay();
+            }
+        }
+
+        /** Get the upper bound of the bucket containing the given percentile, or {@code null} if not enough samples were recorded. **/
+        @Nullable
+        Duration getPercentile(final double percentile) {
+            final var total = getTotal();
+            if (total < MIN_SAMPLES) {
+                return null;
+            }
+
+            final var threshold = (long) Math.ceil(total * percentile);
+            long seen = 0;
+            for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+                seen += this.counts.get(bucket);
+                if (seen >= threshold) {
+                    return Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(fromBucket(bucket + 1)));
+                }
+            }
+            return Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(fromBucket(BUCKET_COUNT)));
+        }
+
+        /** Get the amount of recorded samples. **/
+        long getTotal() {
+            long total = 0;
+            for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+                total += this.counts.get(bucket);
+            }
+            return total;
+        }
+
+        /** Halve all counts. **/
+        private void decay() {
+            for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+                this.counts.updateAndGet(bucket, count -> count / 2);
+            }
+        }
+
+        /** Get the bucket of the latency in milliseconds (in steps of 1024µs). **/
+        private static int toBucket(final long micros) {
+            final var millis = Math.max(1, micros / 1024.0);
+            final var bucket = (int) Math.floor(Math.log(millis) / Math.log(2) * BUCKETS_PER_DOUBLING);
+            return Math.min(BUCKET_COUNT - 1, Math.max(0, bucket));
+        }
+
+        /** Get the lower bound in microseconds of the bucket. **/
+        private static long fromBucket(final int bucket) {
+            return (long) (1024 * Math.pow(2, (double) bucket / BUCKETS_PER_DOUBLING));
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package de.bcersows.vaadinhelper;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
+import com.vaadin.flow.server.Command;
+import com.vaadin.flow.server.VaadinSession;
+import com.vaadin.flow.shared.Registration;
+
+import de.bcersows.vaadinhelper.BackgroundLoadingHelper.DataLoadingInterface;
+import de.bcersows.vaadinhelper.BackgroundOperationManager.UpdateUiInterface;
+import de.bcersows.vaadinhelper.BackgroundUpdateHelper.BackgroundUpdateConfiguration;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Server-wide invalidation of the data shown by the UIs of all sessions: components subscribe their loads or {@link UiBinder}s to topics, e.g.
+ * {@code "customer:42"}, and publishing an invalidation of a topic re-runs only the affected loads. Updates invalidating tags (see
+ * {@link BackgroundUpdateConfiguration#invalidating(String...)}) publish them automatically.<br/>
+ * The invalidations of a UI are coalesced for a short delay (see {@link #setCoalescingDelay(Duration)}) and then refreshed in a single
+ * {@link UI#access(Command)}, running every affected subscription once. Before that, the tagged cached results of the session are evicted, unless the
+ * session published the invalidation itself.<br/>
+ * The invalidations are only delivered within the JVM by default; set an {@link InvalidationTransport} to deliver them across a cluster.
+ *
+ * @author bcersows
+ */
+@Slf4j
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class BackgroundInvalidationBus {
+    /** The subscriptions per topic. **/
+    private static final Map<String, Set<Subscription>> SUBSCRIPTIONS = new ConcurrentHashMap<>();
+    /** The invalidations per UI waiting for the refresh. **/
+    private static final Map<UI, PendingRefresh> PENDING_REFRESHES = new ConcurrentHashMap<>();
+
+    /** The delay to coalesce the invalidations of a UI for. **/
+    private static volatile Duration coalescingDelay = Duration.ofMillis(250);
+    /** The transport delivering the invalidations. **/
+    private static volatile InvalidationTransport transport = startTransport(new InMemoryTransport());
+
+    /** Set the delay to coalesce the invalidations of a UI for before refreshing it. Defaults to 250ms. **/
+    public static void setCoalescingDelay(@NonNull final Duration coalescingDelay) {
+        BackgroundInvalidationBus.coalescingDelay = coalescingDelay;
+    }
+
+    /** Set the transport delivering the invalidations, e.g. to all nodes of a cluster. Stops the previous one. Defaults to an {@link InMemoryTransport}. **/
+    public static synchronized void setTransport(@NonNull final InvalidationTransport transport) {
+        BackgroundInvalidationBus.transport.stop();
+        BackgroundInvalidationBus.transport = startTransport(transport);
+    }
+
+    /**
+     * Publish an invalidation of the given topics to all sessions, e.g. after an update not done using the {@link BackgroundUpdateHelper}.
+     *
+     * @param topics
+     *            the topics to invalidate
+     */
+    public static void publish(@NonNull final String... topics) {
+        publish(null, List.of(topics));
+    }
+
+    /**
+     * Publish an invalidation of the given topics to all sessions.
+     *
+     * @param originSession
+     *            the session publishing the invalidation, which already invalidated its cached results; or {@code null}
+     * @param topics
+     *            the topics to invalidate
+     */
+    static void publish(@Nullable final VaadinSession originSession, @NonNull final Collection<String> topics) {
+        if (topics.isEmpty()) {
+            return;
+        }
+
+        final var originSessionId = null == originSession ? null : getSessionId(originSession);
+        transport.publish(new InvalidationMessage(Set.copyOf(topics), originSessionId));
+    }
+
+    /**
+     * Re-run the refresh task whenever one of the topics is invalidated, while the owner is attached. The subscription also ends once the UI is detached,
+     * e.g. on session expiry.
+     *
+     * @param owner
+     *            the component showing the data; the subscription is only active while it is attached
+     * @param topics
+     *            the topics of the shown data
+     * @param refreshTask
+     *            the task refreshing the data, e.g. by starting a background load; called in the UI thread
+     * @return the registration to unsubscribe
+     */
+    @NonNull
+    public static Registration subscribe(@NonNull final Component owner, @NonNull final Collection<String> topics, @NonNull final Command refreshTask) {
+        final var subscriptionTopics = Set.copyOf(topics);
+        final var activeSubscription = new AtomicReference<Subscription>();
+
+        final Command deactivate = () -> {
+            final var subscription = activeSubscription.getAndSet(null);
+            if (null != subscription) {
+                subscription.uiDetachRegistration.remove();
+                remove(subscription);
+            }
+        };
+        final Consumer<UI> activate = ui -> {
+            deactivate.execute();
+            // the owner isn't necessarily detached with the UI, so don't keep the UI in the subscriptions
+            final var uiDetachRegistration = ui.addDetachListener(event -> deactivate.execute());
+            final var subscription = new Subscription(ui, getSessionId(ui.getSession()), subscriptionTopics, refreshTask, uiDetachRegistration);
+            activeSubscription.set(subscription);
+            subscriptionTopics.forEach(topic -> SUBSCRIPTIONS.computeIfAbsent(topic, key -> ConcurrentHashMap.newKeySet()).add(subscription));
+        };
+
+        owner.getUI().ifPresent(activate);
+        final var attachRegistration = owner.addAttachListener(event -> activate.accept(event.getUI()));
+        final var detachRegistration = owner.addDetachListener(event -> deactivate.execute());
+        return () -> {
+            attachRegistration.remove();
+            detachRegistration.remove();
+            deactivate.execute();
+        };
+    }
+
+    /**
+     * Start a task for background data loading, and load again in latest-wins mode whenever one of the topics is invalidated, while the owner is attached.
+     *
+     * @param <R>
+     *            the data type
+     * @param owner
+     *            the component showing the data; the subscription is only active while it is attached
+     * @param topics
+     *            the topics of the loaded data
+     * @param loadDataTask
+     *            task/provider to actually load the data<br/>
+     *            <strong>This task shall not access the UI elements in any way! In case of a problem, throw the appropriate exception!</strong>
+     * @param updateUiTask
+     *            task/consumer to display the UI with the loaded data
+     * @return the registration to unsubscribe
+     */
+    @NonNull
+    public static <R> Registration subscribeLoading(@NonNull final Component owner, @NonNull final Collection<String> topics,
+            @NonNull final DataLoadingInterface<R> loadDataTask, @NonNull final UpdateUiInterface<R> updateUiTask) {
+        final var latestSlot = new Object();
+        final Command loadTask = () -> BackgroundLoadingHelper.startLatestBackgroundLoading(latestSlot, loadDataTask, updateUiTask);
+
+        loadTask.execute();
+        return subscribe(owner, topics, loadTask);
+    }
+
+    /**
+     * Load the entity of the binder in the background, and load it again whenever one of the topics is invalidated, while the owner is attached.
+     *
+     * @see #subscribeLoading(Component, Collection, DataLoadingInterface, UpdateUiInterface)
+     */
+    @NonNull
+    public static <T> Registration subscribeBinder(@NonNull final Component owner, @NonNull final Collection<String> topics,
+            @NonNull final DataLoadingInterface<T> loadDataTask, @NonNull final UiBinder<T, ?> binder) {
+        return subscribeLoading(owner, topics, loadDataTask, binder::load);
+    }
+
+    /** Start the transport, delivering to this bus. **/
+    @NonNull
+    private static InvalidationTransport startTransport(@NonNull final InvalidationTransport transport) {
+        transport.start(BackgroundInvalidationBus::receive);
+        return transport;
+    }
+
+    /** Receive an invalidation, scheduling the refresh of each affected UI. **/
+    private static void receive(@NonNull final InvalidationMessage message) {
+        for (final var topic : message.topics) {
+            for (final var subscription : SUBSCRIPTIONS.getOrDefault(topic, Set.of())) {
+                final var evictCaches = !subscription.sessionId.equals(message.originSessionId);
+                PENDING_REFRESHES.compute(subscription.ui, (ui, pendingRefresh) -> {
+                    if (null == pendingRefresh) {
+                        pendingRefresh = new PendingRefresh();
+                        BackgroundLoadingIndicator.SCHEDULER.schedule(() -> refresh(ui), coalescingDelay.toMillis(), TimeUnit.MILLISECONDS);
+                    }
+                    pendingRefresh.add(topic, evictCaches);
+                    return pendingRefresh;
+                });
+            }
+        }
+    }
+
+    /** Refresh the UI with all invalidations received since the refresh was scheduled. **/
+    private static void refresh(@NonNull final UI ui) {
+        final var pendingRefresh = PENDING_REFRESHES.remove(ui);
+        if (null == pendingRefresh) {
+            return;
+        }
+
+        try {
+            ui.access(() -> {
+                if (!pendingRefresh.evictedTopics.isEmpty()) {
+                    BackgroundCacheInvalidation.invalidate(ui.getSession(), pendingRefresh.evictedTopics, null);
+                }
+
+                // run each affected subscription once, even if several of its topics were invalidated
+                final Set<Subscription> affectedSubscriptions = new LinkedHashSet<>();
+                pendingRefresh.topics.forEach(topic -> SUBSCRIPTIONS.getOrDefault(topic, Set.of()).stream().filter(subscription -> subscription.ui == ui)
+                        .forEach(affectedSubscriptions::add));
+                log.debug("Refreshing {} subscriptions for {}.", affectedSubscriptions.size(), pendingRefresh.topics);
+
+                for (final var subscription : affectedSubscriptions) {
+                    try {
+                        subscription.refreshTask.execute();
+                    } catch (final RuntimeException e) {
+                        log.warn("Refreshing the subscription to {} failed.", subscription.topics, e);
+                    }
+                }
+            });
+        } catch (final UIDetachedException e) {
+            log.debug("UI detached, dropping its subscriptions.");
+            SUBSCRIPTIONS.values().forEach(subscriptions -> subscriptions.removeIf(subscription -> subscription.ui == ui));
+        }
+    }
+
+    /** Remove the subscription from all its topics. **/
+    private static void remove(@NonNull final Subscription subscription) {
+        subscription.topics.forEach(topic -> SUBSCRIPTIONS.computeIfPresent(topic, (key, subscriptions) -> {
+            subscriptions.remove(subscription);
+            return subscriptions.isEmpty() ? null : subscriptions;
+        }));
+    }
+
+    /** Get the ID of the session. **/
+    @NonNull
+    private static String getSessionId(@NonNull final VaadinSession session) {
+        return session.getSession().getId();
+    }
+
+    /**
+     * Delivers the published invalidations, e.g. to all nodes of a cluster using a message broker. Must deliver to the publishing node as well.
+     */
+    public static interface InvalidationTransport {
+        /**
+         * Start delivering the received invalidations.
+         *
+         * @param receiver
+         *            the receiver of the invalidations; only schedules the refreshes, so can be called from any thread without blocking
+         */
+        void start(@NonNull Consumer<InvalidationMessage> receiver);
+
+        /** Publish the invalidation to all nodes. **/
+        void publish(@NonNull InvalidationMessage message);
+
+        /** Stop delivering the invalidations. **/
+        void stop();
+    }
+
+    /** Delivers the invalidations within the JVM only, synchronously. **/
+    public static class InMemoryTransport implements InvalidationTransport {
+        /** The receiver of the invalidations, if started. **/
+        @Nullable
+        private volatile Consumer<InvalidationMessage> receiver;
+
+        @Override
+        public void start(@NonNull final Consumer<InvalidationMessage> receiver) {
+            this.receiver = receiver;
+        }
+
+        @Override
+        public void publish(@NonNull final InvalidationMessage message) {
+            final var currentReceiver = this.receiver;
+            if (null != currentReceiver) {
+                currentReceiver.accept(message);
+            }
+        }
+
+        @Override
+        public void stop() {
+            this.receiver = null;
+        }
+    }
+
+    /** An invalidation of topics. **/
+    @Data
+    public static class InvalidationMessage implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        /** The invalidated topics. **/
+        @NonNull
+        private final Set<String> topics;
+        /** The ID of the session publishing the invalidation, if any. **/
+        @Nullable
+        private final String originSessionId;
+    }
+
+    /** A subscription of a UI to topics. Compared by identity. **/
+    private static final class Subscription {
+        /** The subscribed UI. **/
+        @NonNull
+        private final UI ui;
+        /** The ID of the UI's session, to tell its own invalidations apart. **/
+        @NonNull
+        private final String sessionId;
+        /** The subscribed topics. **/
+        @NonNull
+        private final Set<String> topics;
+        /** Refreshes the UI once a topic was invalidated. **/
+        @NonNull
+        private final Command refreshTask;
+        /** Ends the subscription once the UI is detached. **/
+        @NonNull
+        private final Registration uiDetachRegistration;
+
+        /** Create an instance. **/
+        private Subscription(@NonNull final UI ui, @NonNull final String sessionId, @NonNull final Set<String> topics, @NonNull final Command refreshTask,
+                @NonNull final Registration uiDetachRegistration) {
+            this.ui = ui;
+            this.sessionId = sessionId;
+            this.topics = topics;
+            this.refreshTask = refreshTask;
+            this.uiDetachRegistration = uiDetachRegistration;
+        }
+    }
+
+    /** The invalidations received for a UI, waiting for the refresh. Only modified while being computed in the pending refreshes. **/
+    private static final class PendingRefresh {
+        /** All invalidated topics. **/
+        private final Set<String> topics = new HashSet<>();
+        /** The invalidated topics whose cached results to evict. **/
+        private final Set<String> evictedTopics = new HashSet<>();
+
+        private void add(@NonNull final String topic, final boolean evictCaches) {
+            this.topics.add(topic);
+            if (evictCaches) {
+                this.evictedTopics.add(topic);
+            }
+        }
+    }
+}
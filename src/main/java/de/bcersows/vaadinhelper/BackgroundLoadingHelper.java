@@ -1,22 +1,42 @@
 package de.bcersows.vaadinhelper;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
 import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
 
-import com.vaadin.flow.component.html.Div;
-import com.vaadin.flow.dom.Element;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.router.BeforeEnterEvent;
+import com.vaadin.flow.router.NavigationTrigger;
+import com.vaadin.flow.router.RouteParameters;
+import com.vaadin.flow.server.VaadinSession;
 
+import de.bcersows.vaadinhelper.BackgroundCacheInvalidation.CachedEntry;
+import de.bcersows.vaadinhelper.helpers.NotificationHelper;
 import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * Helper to allow background loading.
  * 
  * @author bcersows
  */
+@Slf4j
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public final class BackgroundLoadingHelper extends BackgroundOperationManager {
 
@@ -24,6 +44,71 @@ public final class BackgroundLoadingHelper extends BackgroundOperationManager {
     public static final String STYLE_CLASS_BG_LOADING_CONTENT = "bg-loading-content";
     /** Attribute indicating a background load is in progress. **/
     private static final String ATTRIBUTE_BACKGROUND_LOADING = "background-loading";
+    /** The session attribute for the session-wide operations. **/
+    private static final String ATTRIBUTE_SESSION_OPERATIONS = BackgroundLoadingHelper.class.getName() + ".sessionOperations";
+    /** The session attribute for the view state snapshots. **/
+    private static final String ATTRIBUTE_VIEW_STATES = BackgroundLoadingHelper.class.getName() + ".viewStates";
+
+    /** The rate limiter for background loads, if any. **/
+    @Nullable
+    private static volatile BackgroundRateLimiter rateLimiter;
+
+    /** The hedging policy for idempotent background loads, if any. **/
+    @Nullable
+    private static volatile BackgroundHedgingPolicy hedgingPolicy;
+
+    /** The time the result of a session-wide operation is kept for reattaching UIs. **/
+    @NonNull
+    private static volatile Duration sessionResultRetention = Duration.ofMinutes(1);
+
+    /**
+     * Set the time the result of a session-wide operation started with
+     * {@link #startSessionBackgroundLoading(String, DataLoadingInterface, UpdateUiInterface, UpdateUiOnErrorInterface)} is kept after it finished, e.g. for a
+     * page reloaded right after it. One minute as default.
+     */
+    public static void setSessionResultRetention(@NonNull final Duration sessionResultRetention) {
+        BackgroundLoadingHelper.sessionResultRetention = sessionResultRetention;
+    }
+
+    /** The max amount of view state snapshots kept per session. **/
+    private static volatile int viewStateCacheSize = 20;
+
+    /**
+     * Set the max amount of view state snapshots kept per session by
+     * {@link #startViewStateBackgroundLoading(BeforeEnterEvent, DataLoadingInterface, UpdateUiInterface, boolean, UpdateUiOnErrorInterface)}; the least
+     * recently used ones are evicted. 20 as default.
+     */
+    public static void setViewStateCacheSize(final int viewStateCacheSize) {
+        BackgroundLoadingHelper.viewStateCacheSize = viewStateCacheSize;
+    }
+
+    /** The pool computing the parts of splittable data tasks. **/
+    @NonNull
+    private static volatile ForkJoinPool splitPool = ForkJoinPool.commonPool();
+
+    /**
+     * Set the pool computing the parts of splittable data tasks started with
+     * {@link #startSplitBackgroundLoading(DataLoadingInterface, SplittableDataTask, UpdateUiInterface, UpdateUiOnErrorInterface)}. Uses the common pool as
+     * default.
+     */
+    public static void setSplitPool(@NonNull final ForkJoinPool splitPool) {
+        BackgroundLoadingHelper.splitPool = splitPool;
+    }
+
+    /**
+     * Set the hedging policy applied to idempotent background loads started with
+     * {@link #startHedgedBackgroundLoading(String, DataLoadingInterface, UpdateUiInterface, UpdateUiOnErrorInterface)}. {@code null} disables hedging.
+     */
+    public static void setHedgingPolicy(@Nullable final BackgroundHedgingPolicy hedgingPolicy) {
+        BackgroundLoadingHelper.hedgingPolicy = hedgingPolicy;
+    }
+
+    /**
+     * Set the rate limiter applied per principal to all background loads. {@code null} disables the limit.
+     */
+    public static void setRateLimiter(@Nullable final BackgroundRateLimiter rateLimiter) {
+        BackgroundLoadingHelper.rateLimiter = rateLimiter;
+    }
 
     /**
      * Start a task for background data loading. Will show a custom loading indicator.<br/>
@@ -104,10 +189,631 @@ public final class BackgroundLoadingHelper extends BackgroundOperationManager {
      */
     public static <R> void startBackgroundLoading(@NonNull final DataLoadingInterface<R> loadDataTask, @NonNull final UpdateUiInterface<R> updateUiTask,
             @Nullable final DataCheckingInterface<R> dataCheckingTask, @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask) {
-        final var backgroundLoadingOperation = new BackgroundLoadingOperation<>(loadDataTask, updateUiTask, dataCheckingTask, updateUiOnErrorTask);
+        final var backgroundLoadingOperation = new BackgroundLoadingOperation<>(loadDataTask, updateUiTask, dataCheckingTask, updateUiOnErrorTask, null);
+        backgroundLoadingOperation.startBackgroundOperation();
+    }
+
+    /**
+     * Start an asynchronous background data loading. No thread is blocked while waiting for the data. Will show a custom loading indicator.
+     * 
+     * @param <R>
+     *            the data type
+     * @param asyncLoadDataTask
+     *            task/provider starting to load the data, e.g. using an asynchronous HTTP client; it's called on the UI thread, so must not block<br/>
+     *            <strong>The returned stage shall not access the UI elements in any way! In case of a problem, complete it with the appropriate
+     *            exception!</strong>
+     * @param updateUiTask
+     *            task/consumer to display the UI with the loaded data
+     */
+    public static <R> void startAsyncBackgroundLoading(@NonNull final AsyncDataLoadingInterface<R> asyncLoadDataTask,
+            @NonNull final UpdateUiInterface<R> updateUiTask) {
+        startAsyncBackgroundLoading(asyncLoadDataTask, updateUiTask, null, null);
+    }
+
+    /**
+     * Start an asynchronous background data loading. No thread is blocked while waiting for the data. Will show a custom loading indicator.
+     * 
+     * @param <R>
+     *            the data type
+     * @param asyncLoadDataTask
+     *            task/provider starting to load the data, e.g. using an asynchronous HTTP client; it's called on the UI thread, so must not block<br/>
+     *            <strong>The returned stage shall not access the UI elements in any way! In case of a problem, complete it with the appropriate
+     *            exception!</strong>
+     * @param updateUiTask
+     *            task/consumer to display the UI with the loaded data
+     * @param updateUiOnErrorTask
+     *            if provided, will be called in the error case instead of showing a notification. Allows for modification on the UI.
+     */
+    public static <R> void startAsyncBackgroundLoading(@NonNull final AsyncDataLoadingInterface<R> asyncLoadDataTask,
+            @NonNull final UpdateUiInterface<R> updateUiTask, @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask) {
+        startAsyncBackgroundLoading(asyncLoadDataTask, updateUiTask, null, updateUiOnErrorTask);
+    }
+
+    /**
+     * Start an asynchronous background data loading. No thread is blocked while waiting for the data. Will show a custom loading indicator.
+     * 
+     * @param <R>
+     *            the data type
+     * @param asyncLoadDataTask
+     *            task/provider starting to load the data, e.g. using an asynchronous HTTP client; it's called on the UI thread, so must not block<br/>
+     *            <strong>The returned stage shall not access the UI elements in any way! In case of a problem, complete it with the appropriate
+     *            exception!</strong>
+     * @param updateUiTask
+     *            task/consumer to display the UI with the loaded data
+     * @param dataCheckingTask
+     *            allows to check the loaded data before updating the UI. <strong>Allows UI access, e.g. for forwarding the request to another view, or to
+     *            display notifications.</strong><br/>
+     *            As this is run on the UI, it should only perform simple checks.
+     */
+    public static <R> void startAsyncBackgroundLoading(@NonNull final AsyncDataLoadingInterface<R> asyncLoadDataTask,
+            @NonNull final UpdateUiInterface<R> updateUiTask, @Nullable final DataCheckingInterface<R> dataCheckingTask) {
+        startAsyncBackgroundLoading(asyncLoadDataTask, updateUiTask, dataCheckingTask, null);
+    }
+
+    /**
+     * Start an asynchronous background data loading. No thread is blocked while waiting for the data. Will show a custom loading indicator.
+     * 
+     * @param <R>
+     *            the data type
+     * @param asyncLoadDataTask
+     *            task/provider starting to load the data, e.g. using an asynchronous HTTP client; it's called on the UI thread, so must not block<br/>
+     *            <strong>The returned stage shall not access the UI elements in any way! In case of a problem, complete it with the appropriate
+     *            exception!</strong>
+     * @param updateUiTask
+     *            task/consumer to display the UI with the loaded data
+     * @param dataCheckingTask
+     *            allows to check the loaded data before updating the UI. <strong>Allows UI access, e.g. for forwarding the request to another view, or to
+     *            display notifications.</strong><br/>
+     *            As this is run on the UI, it should only perform simple checks.
+     * @param updateUiOnErrorTask
+     *            if provided, will be called in the error case instead of showing a notification. Allows for modification on the UI.
+     */
+    public static <R> void startAsyncBackgroundLoading(@NonNull final AsyncDataLoadingInterface<R> asyncLoadDataTask,
+            @NonNull final UpdateUiInterface<R> updateUiTask, @Nullable final DataCheckingInterface<R> dataCheckingTask,
+            @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask) {
+        final var backgroundLoadingOperation = new BackgroundLoadingOperation<>(asyncLoadDataTask, updateUiTask, dataCheckingTask, updateUiOnErrorTask, null);
+        backgroundLoadingOperation.startBackgroundOperation();
+    }
+
+    /**
+     * Start a task for background data loading in latest-wins mode, e.g. for a view reloading on every filter change. Cancels the running load of the
+     * same slot in the UI; only the result of the latest load is ever applied. Will show a custom loading indicator.
+     * 
+     * @param <R>
+     *            the data type
+     * @param latestSlot
+     *            the slot of the load, e.g. the component showing the result
+     * @param loadDataTask
+     *            task/provider to actually load the data; should react to interruption<br/>
+     *            <strong>This task shall not access the UI elements in any way! In case of a problem, throw the appropriate exception!</strong>
+     * @param updateUiTask
+     *            task/consumer to display the UI with the loaded data
+     */
+    public static <R> void startLatestBackgroundLoading(@NonNull final Object latestSlot, @NonNull final DataLoadingInterface<R> loadDataTask,
+            @NonNull final UpdateUiInterface<R> updateUiTask) {
+        startLatestBackgroundLoading(latestSlot, loadDataTask, updateUiTask, null);
+    }
+
+    /**
+     * Start a task for background data loading in latest-wins mode, e.g. for a view reloading on every filter change. Cancels the running load of the
+     * same slot in the UI; only the result of the latest load is ever applied. Will show a custom loading indicator.
+     * 
+     * @param <R>
+     *            the data type
+     * @param latestSlot
+     *            the slot of the load, e.g. the component showing the result
+     * @param loadDataTask
+     *            task/provider to actually load the data; should react to interruption<br/>
+     *            <strong>This task shall not access the UI elements in any way! In case of a problem, throw the appropriate exception!</strong>
+     * @param updateUiTask
+     *            task/consumer to display the UI with the loaded data
+     * @param updateUiOnErrorTask
+     *            if provided, will be called in the error case instead of showing a notification. Allows for modification on the UI.
+     */
+    public static <R> void startLatestBackgroundLoading(@NonNull final Object latestSlot, @NonNull final DataLoadingInterface<R> loadDataTask,
+            @NonNull final UpdateUiInterface<R> updateUiTask, @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask) {
+        final var backgroundLoadingOperation = new BackgroundLoadingOperation<>(loadDataTask, updateUiTask, null, updateUiOnErrorTask, latestSlot);
+        backgroundLoadingOperation.startBackgroundOperation();
+    }
+
+    /**
+     * Start an asynchronous background data loading in latest-wins mode. Cancels the pending stage of the running load of the same slot in the UI; only
+     * the result of the latest load is ever applied. Will show a custom loading indicator.
+     * 
+     * @param <R>
+     *            the data type
+     * @param latestSlot
+     *            the slot of the load, e.g. the component showing the result
+     * @param asyncLoadDataTask
+     *            task/provider starting to load the data; it's called on the UI thread, so must not block<br/>
+     *            <strong>The returned stage shall not access the UI elements in any way! In case of a problem, complete it with the appropriate
+     *            exception!</strong>
+     * @param updateUiTask
+     *            task/consumer to display the UI with the loaded data
+     * @param updateUiOnErrorTask
+     *            if provided, will be called in the error case instead of showing a notification. Allows for modification on the UI.
+     */
+    public static <R> void startLatestAsyncBackgroundLoading(@NonNull final Object latestSlot, @NonNull final AsyncDataLoadingInterface<R> asyncLoadDataTask,
+            @NonNull final UpdateUiInterface<R> updateUiTask, @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask) {
+        final var backgroundLoadingOperation = new BackgroundLoadingOperation<>(asyncLoadDataTask, updateUiTask, null, updateUiOnErrorTask, latestSlot);
         backgroundLoadingOperation.startBackgroundOperation();
     }
 
+    /**
+     * Start a task for background data loading without a UI, e.g. to warm up shared caches from a startup hook or a scheduled job. It's rate limited,
+     * traced and cancelled on shutdown like the loads of a UI.
+     * 
+     * @param <R>
+     *            the data type
+     * @param loadDataTask
+     *            task/provider to actually load the data; should react to interruption
+     * @return the loaded data; completed exceptionally if the load failed or was rejected, and cancelled if the load was cancelled
+     */
+    @NonNull
+    public static <R> CompletableFuture<R> startDetachedBackgroundLoading(@NonNull final DataLoadingInterface<R> loadDataTask) {
+        final var loadedData = new CompletableFuture<R>();
+        new DetachedLoadingOperation<>(loadDataTask, loadedData).startDetachedOperation();
+        return loadedData;
+    }
+
+    /**
+     * Start a task for background data loading of an idempotent call, which is hedged according to the hedging policy: if it's slower than usual, a second
+     * attempt is started and the faster one is used. Will show a custom loading indicator.
+     * 
+     * @param <R>
+     *            the data type
+     * @param operationName
+     *            the name of the operation to track the latency for, e.g. the called endpoint
+     * @param loadDataTask
+     *            idempotent task/provider to actually load the data; may run twice in parallel<br/>
+     *            <strong>This task shall not access the UI elements in any way! In case of a problem, throw the appropriate exception!</strong>
+     * @param updateUiTask
+     *            task/consumer to display the UI with the loaded data
+     */
+    public static <R> void startHedgedBackgroundLoading(@NonNull final String operationName, @NonNull final DataLoadingInterface<R> loadDataTask,
+            @NonNull final UpdateUiInterface<R> updateUiTask) {
+        startHedgedBackgroundLoading(operationName, loadDataTask, updateUiTask, null);
+    }
+
+    /**
+     * Start a task for background data loading of an idempotent call, which is hedged according to the hedging policy: if it's slower than usual, a second
+     * attempt is started and the faster one is used. Will show a custom loading indicator.
+     * 
+     * @param <R>
+     *            the data type
+     * @param operationName
+     *            the name of the operation to track the latency for, e.g. the called endpoint
+     * @param loadDataTask
+     *            idempotent task/provider to actually load the data; may run twice in parallel<br/>
+     *            <strong>This task shall not access the UI elements in any way! In case of a problem, throw the appropriate exception!</strong>
+     * @param updateUiTask
+     *            task/consumer to display the UI with the loaded data
+     * @param updateUiOnErrorTask
+     *            if provided, will be called in the error case instead of showing a notification. Allows for modification on the UI.
+     */
+    public static <R> void startHedgedBackgroundLoading(@NonNull final String operationName, @NonNull final DataLoadingInterface<R> loadDataTask,
+            @NonNull final UpdateUiInterface<R> updateUiTask, @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask) {
+        final var currentHedgingPolicy = hedgingPolicy;
+        if (null == currentHedgingPolicy) {
+            startBackgroundLoading(loadDataTask, updateUiTask, updateUiOnErrorTask);
+        } else {
+            startBackgroundLoading(() -> currentHedgingPolicy.load(operationName, loadDataTask::loadData), updateUiTask, updateUiOnErrorTask);
+        }
+    }
+
+    /**
+     * Start a task for background data loading, running it once per session: a new UI of the session, e.g. after a page reload, reattaches to the running
+     * operation with the same ID or to its recently finished result instead of loading again. Will show a custom loading indicator.
+     * 
+     * @param <R>
+     *            the data type
+     * @param operationId
+     *            the stable ID of the operation in the session, e.g. the report and its parameters
+     * @param loadDataTask
+     *            task/provider to actually load the data<br/>
+     *            <strong>This task shall not access the UI elements in any way! In case of a problem, throw the appropriate exception!</strong>
+     * @param updateUiTask
+     *            task/consumer to display the UI with the loaded data
+     */
+    public static <R> void startSessionBackgroundLoading(@NonNull final String operationId, @NonNull final DataLoadingInterface<R> loadDataTask,
+            @NonNull final UpdateUiInterface<R> updateUiTask) {
+        startSessionBackgroundLoading(operationId, loadDataTask, updateUiTask, null);
+    }
+
+    /**
+     * Start a task for background data loading, running it once per session: a new UI of the session, e.g. after a page reload, reattaches to the running
+     * operation with the same ID or to its recently finished result instead of loading again. Will show a custom loading indicator.
+     * 
+     * @param <R>
+     *            the data type
+     * @param operationId
+     *            the stable ID of the operation in the session, e.g. the report and its parameters
+     * @param loadDataTask
+     *            task/provider to actually load the data<br/>
+     *            <strong>This task shall not access the UI elements in any way! In case of a problem, throw the appropriate exception!</strong>
+     * @param updateUiTask
+     *            task/consumer to display the UI with the loaded data
+     * @param updateUiOnErrorTask
+     *            if provided, will be called in the error case instead of showing a notification. Allows for modification on the UI.
+     */
+    public static <R> void startSessionBackgroundLoading(@NonNull final String operationId, @NonNull final DataLoadingInterface<R> loadDataTask,
+            @NonNull final UpdateUiInterface<R> updateUiTask, @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask) {
+        startSessionBackgroundLoading(operationId, loadDataTask, updateUiTask, updateUiOnErrorTask, Set.of());
+    }
+
+    /**
+     * Start a task for background data loading, running it once per session: a new UI of the session, e.g. after a page reload, reattaches to the running
+     * operation with the same ID or to its recently finished result instead of loading again. Will show a custom loading indicator.
+     * 
+     * @param <R>
+     *            the data type
+     * @param operationId
+     *            the stable ID of the operation in the session, e.g. the report and its parameters
+     * @param loadDataTask
+     *            task/provider to actually load the data<br/>
+     *            <strong>This task shall not access the UI elements in any way! In case of a problem, throw the appropriate exception!</strong>
+     * @param updateUiTask
+     *            task/consumer to display the UI with the loaded data
+     * @param updateUiOnErrorTask
+     *            if provided, will be called in the error case instead of showing a notification. Allows for modification on the UI.
+     * @param invalidationTags
+     *            the tags of the result, e.g. {@code "customer:42"}; updates invalidating one of them evict it, see {@link BackgroundCacheInvalidation}
+     */
+    public static <R> void startSessionBackgroundLoading(@NonNull final String operationId, @NonNull final DataLoadingInterface<R> loadDataTask,
+            @NonNull final UpdateUiInterface<R> updateUiTask, @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask,
+            @NonNull final Set<String> invalidationTags) {
+        final var session = VaadinSession.getCurrent();
+        if (null == session) {
+            throw new IllegalStateException("Background operation must be started from a valid UI location.");
+        }
+
+        final var sessionOperations = getSessionOperations(session);
+        final var retention = sessionResultRetention;
+        sessionOperations.values().removeIf(sessionOperation -> !sessionOperation.isReusable(retention));
+
+        @SuppressWarnings("unchecked")
+        final var runningOperation = (SessionOperation<R>) sessionOperations.get(operationId);
+        if (null != runningOperation) {
+            // reattach; a copy, so cancelling this UI's operation doesn't affect the shared one
+            log.debug("Reattaching to session background operation {}.", operationId);
+            startAsyncBackgroundLoading(() -> runningOperation.result.copy(), updateUiTask, null, updateUiOnErrorTask);
+            return;
+        }
+
+        final var sessionOperation = new SessionOperation<R>(sessionOperations, operationId);
+        sessionOperations.put(operationId, sessionOperation);
+        BackgroundCacheInvalidation.register(session, invalidationTags, sessionOperation);
+        final UpdateUiOnErrorInterface sessionErrorTask = restServiceException -> {
+            // also rejected operations must not be reattached to
+            sessionOperation.fail(restServiceException);
+
+            if (null != updateUiOnErrorTask) {
+                updateUiOnErrorTask.runOnUiAfterError(restServiceException);
+            } else {
+                NotificationHelper.showException(restServiceException.getUserMessage(), restServiceException);
+            }
+        };
+        final DataLoadingInterface<R> sessionLoadTask = () -> sessionOperation.load(loadDataTask);
+        new BackgroundLoadingOperation<R>(sessionLoadTask, updateUiTask, null, sessionErrorTask, null) {
+            @Override
+            protected void postOperationFinish(final boolean succeeded) {
+                // ended without a result, e.g. cancelled before the data task ran; the error task is skipped if the UI was detached meanwhile
+                sessionOperation.cancel();
+            }
+        }.startBackgroundOperation();
+    }
+
+    /**
+     * Get the session-wide operations of the session. Must be called with the session being locked.
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    private static Map<String, SessionOperation<?>> getSessionOperations(@NonNull final VaadinSession session) {
+        var sessionOperations = (Map<String, SessionOperation<?>>) session.getAttribute(ATTRIBUTE_SESSION_OPERATIONS);
+        if (null == sessionOperations) {
+            sessionOperations = new HashMap<>();
+            session.setAttribute(ATTRIBUTE_SESSION_OPERATIONS, sessionOperations);
+        }
+        return sessionOperations;
+    }
+
+    /**
+     * Start a task for background data loading of a view, keeping the loaded data as snapshot of the view state: navigating back (or forward) to the view
+     * with the same route parameters renders the snapshot right away instead of loading again, like a browser's back-forward cache. Must be called in the
+     * {@code beforeEnter} of the view. Will show a custom loading indicator, unless rendering a snapshot.
+     * 
+     * @param <R>
+     *            the data type; should be immutable, as the snapshot is shared by all UIs of the session
+     * @param event
+     *            the before enter event of the view
+     * @param loadDataTask
+     *            task/provider to actually load the data<br/>
+     *            <strong>This task shall not access the UI elements in any way! In case of a problem, throw the appropriate exception!</strong>
+     * @param updateUiTask
+     *            task/consumer to display the UI with the loaded data or snapshot
+     * @param revalidate
+     *            if to load the data again after rendering a snapshot, updating the UI once more with the fresh data; the snapshot stays visible meanwhile
+     */
+    public static <R> void startViewStateBackgroundLoading(@NonNull final BeforeEnterEvent event, @NonNull final DataLoadingInterface<R> loadDataTask,
+            @NonNull final UpdateUiInterface<R> updateUiTask, final boolean revalidate) {
+        startViewStateBackgroundLoading(event, loadDataTask, updateUiTask, revalidate, null);
+    }
+
+    /**
+     * Start a task for background data loading of a view, keeping the loaded data as snapshot of the view state: navigating back (or forward) to the view
+     * with the same route parameters renders the snapshot right away instead of loading again, like a browser's back-forward cache. Must be called in the
+     * {@code beforeEnter} of the view. Will show a custom loading indicator, unless rendering a snapshot.
+     * 
+     * @param <R>
+     *            the data type; should be immutable, as the snapshot is shared by all UIs of the session
+     * @param event
+     *            the before enter event of the view
+     * @param loadDataTask
+     *            task/provider to actually load the data<br/>
+     *            <strong>This task shall not access the UI elements in any way! In case of a problem, throw the appropriate exception!</strong>
+     * @param updateUiTask
+     *            task/consumer to display the UI with the loaded data or snapshot
+     * @param revalidate
+     *            if to load the data again after rendering a snapshot, updating the UI once more with the fresh data; the snapshot stays visible meanwhile
+     * @param updateUiOnErrorTask
+     *            if provided, will be called in the error case instead of showing a notification. Allows for modification on the UI.
+     */
+    public static <R> void startViewStateBackgroundLoading(@NonNull final BeforeEnterEvent event, @NonNull final DataLoadingInterface<R> loadDataTask,
+            @NonNull final UpdateUiInterface<R> updateUiTask, final boolean revalidate, @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask) {
+        startViewStateBackgroundLoading(event, loadDataTask, updateUiTask, revalidate, updateUiOnErrorTask, Set.of());
+    }
+
+    /**
+     * Start a task for background data loading of a view, keeping the loaded data as snapshot of the view state: navigating back (or forward) to the view
+     * with the same route parameters renders the snapshot right away instead of loading again, like a browser's back-forward cache. Must be called in the
+     * {@code beforeEnter} of the view. Will show a custom loading indicator, unless rendering a snapshot.
+     * 
+     * @param <R>
+     *            the data type; should be immutable, as the snapshot is shared by all UIs of the session
+     * @param event
+     *            the before enter event of the view
+     * @param loadDataTask
+     *            task/provider to actually load the data<br/>
+     *            <strong>This task shall not access the UI elements in any way! In case of a problem, throw the appropriate exception!</strong>
+     * @param updateUiTask
+     *            task/consumer to display the UI with the loaded data or snapshot
+     * @param revalidate
+     *            if to load the data again after rendering a snapshot, updating the UI once more with the fresh data; the snapshot stays visible meanwhile
+     * @param updateUiOnErrorTask
+     *            if provided, will be called in the error case instead of showing a notification. Allows for modification on the UI.
+     * @param invalidationTags
+     *            the tags of the snapshot, e.g. {@code "customer:42"}; updates invalidating one of them evict it or write through to it, see
+     *            {@link BackgroundCacheInvalidation}
+     */
+    @SuppressWarnings("unchecked")
+    public static <R> void startViewStateBackgroundLoading(@NonNull final BeforeEnterEvent event, @NonNull final DataLoadingInterface<R> loadDataTask,
+            @NonNull final UpdateUiInterface<R> updateUiTask, final boolean revalidate, @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask,
+            @NonNull final Set<String> invalidationTags) {
+        final var session = event.getUI().getSession();
+        final var viewStateKey = new ViewStateKey(event.getNavigationTarget(), event.getRouteParameters());
+        final UpdateUiInterface<R> snapshottingUpdateUiTask = loadedData -> {
+            final var viewStates = getViewStates(session);
+            viewStates.put(viewStateKey, loadedData);
+            BackgroundCacheInvalidation.register(session, invalidationTags, new ViewStateEntry(viewStates, viewStateKey));
+            updateUiTask.updateUi(loadedData);
+        };
+
+        final var viewStates = getViewStates(session);
+        if (NavigationTrigger.HISTORY != event.getTrigger() || !viewStates.containsKey(viewStateKey)) {
+            startBackgroundLoading(loadDataTask, snapshottingUpdateUiTask, updateUiOnErrorTask);
+            return;
+        }
+
+        log.debug("Rendering view state snapshot of {}.", event.getNavigationTarget().getSimpleName());
+        updateUiTask.updateUi((R) viewStates.get(viewStateKey));
+        if (revalidate) {
+            // without indicator, so the snapshot isn't hidden by the skeleton
+            new RevalidationOperation<>(loadDataTask, snapshottingUpdateUiTask, updateUiOnErrorTask, null).startBackgroundOperation();
+        }
+    }
+
+    /**
+     * Get the view state snapshots of the session, in the order of their last use. Must be called with the session being locked.
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    private static Map<ViewStateKey, Object> getViewStates(@NonNull final VaadinSession session) {
+        var viewStates = (Map<ViewStateKey, Object>) session.getAttribute(ATTRIBUTE_VIEW_STATES);
+        if (null == viewStates) {
+            viewStates = new LinkedHashMap<>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<ViewStateKey, Object> eldest) {
+                    return size() > viewStateCacheSize;
+                }
+            };
+            session.setAttribute(ATTRIBUTE_VIEW_STATES, viewStates);
+        }
+        return viewStates;
+    }
+
+    /**
+     * Start a task for background data loading whose UI update is prepared in the background, too: the components and view models are built detached in the
+     * background thread, so only attaching them holds the session lock. Blocks other requests of the session as short as possible for big views. Will show
+     * a custom loading indicator.
+     * 
+     * @param <R>
+     *            the data type
+     * @param <P>
+     *            the type of the prepared components or view models
+     * @param loadDataTask
+     *            task/provider to actually load the data<br/>
+     *            <strong>This task shall not access the UI elements in any way! In case of a problem, throw the appropriate exception!</strong>
+     * @param prepareUiTask
+     *            task building the detached components for the loaded data<br/>
+     *            <strong>This task shall not access the attached UI elements in any way! Doing so is detected and fails the loading.</strong>
+     * @param attachUiTask
+     *            task/consumer attaching the prepared components to the UI; should be cheap
+     */
+    public static <R, P> void startPreparedBackgroundLoading(@NonNull final DataLoadingInterface<R> loadDataTask,
+            @NonNull final PrepareUiInterface<R, P> prepareUiTask, @NonNull final UpdateUiInterface<P> attachUiTask) {
+        startPreparedBackgroundLoading(loadDataTask, prepareUiTask, attachUiTask, null);
+    }
+
+    /**
+     * Start a task for background data loading whose UI update is prepared in the background, too: the components and view models are built detached in the
+     * background thread, so only attaching them holds the session lock. Blocks other requests of the session as short as possible for big views. Will show
+     * a custom loading indicator.
+     * 
+     * @param <R>
+     *            the data type
+     * @param <P>
+     *            the type of the prepared components or view models
+     * @param loadDataTask
+     *            task/provider to actually load the data<br/>
+     *            <strong>This task shall not access the UI elements in any way! In case of a problem, throw the appropriate exception!</strong>
+     * @param prepareUiTask
+     *            task building the detached components for the loaded data<br/>
+     *            <strong>This task shall not access the attached UI elements in any way! Doing so is detected and fails the loading.</strong>
+     * @param attachUiTask
+     *            task/consumer attaching the prepared components to the UI; should be cheap
+     * @param updateUiOnErrorTask
+     *            if provided, will be called in the error case instead of showing a notification. Allows for modification on the UI.
+     */
+    public static <R, P> void startPreparedBackgroundLoading(@NonNull final DataLoadingInterface<R> loadDataTask,
+            @NonNull final PrepareUiInterface<R, P> prepareUiTask, @NonNull final UpdateUiInterface<P> attachUiTask,
+            @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask) {
+        final var ui = UI.getCurrent();
+        if (null == ui) {
+            throw new IllegalStateException("Background operation must be started from a valid UI location.");
+        }
+
+        final DataLoadingInterface<P> prepareDataTask = () -> prepareDetached(ui, prepareUiTask, loadDataTask.loadData());
+        startBackgroundLoading(prepareDataTask, attachUiTask, updateUiOnErrorTask);
+    }
+
+    /**
+     * Start a task for background data loading followed by a CPU-heavy computation, e.g. an aggregation of the loaded records. The loaded input is split,
+     * its parts are computed in parallel on all cores and merged again; the computed share is shown as progress by the loading indicator.
+     * 
+     * @param <T>
+     *            the loaded input type
+     * @param <R>
+     *            the data type
+     * @param loadDataTask
+     *            task/provider to actually load the input<br/>
+     *            <strong>This task shall not access the UI elements in any way! In case of a problem, throw the appropriate exception!</strong>
+     * @param splittableTask
+     *            the computation of the loaded input; it runs on the split pool, without the request context<br/>
+     *            <strong>This task shall not access the UI elements in any way! In case of a problem, throw the appropriate exception!</strong>
+     * @param updateUiTask
+     *            task/consumer to display the UI with the computed data
+     */
+    public static <T, R> void startSplitBackgroundLoading(@NonNull final DataLoadingInterface<T> loadDataTask,
+            @NonNull final SplittableDataTask<T, R> splittableTask, @NonNull final UpdateUiInterface<R> updateUiTask) {
+        startSplitBackgroundLoading(loadDataTask, splittableTask, updateUiTask, null);
+    }
+
+    /**
+     * Start a task for background data loading followed by a CPU-heavy computation, e.g. an aggregation of the loaded records. The loaded input is split,
+     * its parts are computed in parallel on all cores and merged again; the computed share is shown as progress by the loading indicator.
+     * 
+     * @param <T>
+     *            the loaded input type
+     * @param <R>
+     *            the data type
+     * @param loadDataTask
+     *            task/provider to actually load the input<br/>
+     *            <strong>This task shall not access the UI elements in any way! In case of a problem, throw the appropriate exception!</strong>
+     * @param splittableTask
+     *            the computation of the loaded input; it runs on the split pool, without the request context<br/>
+     *            <strong>This task shall not access the UI elements in any way! In case of a problem, throw the appropriate exception!</strong>
+     * @param updateUiTask
+     *            task/consumer to display the UI with the computed data
+     * @param updateUiOnErrorTask
+     *            if provided, will be called in the error case instead of showing a notification. Allows for modification on the UI.
+     */
+    public static <T, R> void startSplitBackgroundLoading(@NonNull final DataLoadingInterface<T> loadDataTask,
+            @NonNull final SplittableDataTask<T, R> splittableTask, @NonNull final UpdateUiInterface<R> updateUiTask,
+            @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask) {
+        final ProgressDataHandlingInterface<R> splitDataTask = progressReporter -> {
+            final var input = loadDataTask.loadData();
+            return null == input ? null : BackgroundSplitComputation.compute(splitPool, input, splittableTask, progressReporter);
+        };
+        final var backgroundLoadingOperation = new BackgroundLoadingOperation<>(splitDataTask, updateUiTask, null, updateUiOnErrorTask, null);
+        backgroundLoadingOperation.startBackgroundOperation();
+    }
+
+    /**
+     * Start a background loading from an already started asynchronous call, e.g. {@code webClient.get()...bodyToMono(...).toFuture()}. No thread is blocked
+     * while waiting for it. Will show a custom loading indicator.
+     * 
+     * @param <R>
+     *            the data type
+     * @param pendingData
+     *            the pending data; a {@link RestServiceException} completing it exceptionally is handled like a thrown one<br/>
+     *            <strong>It shall not access the UI elements in any way!</strong>
+     * @param updateUiTask
+     *            task/consumer to display the UI with the loaded data
+     */
+    public static <R> void startBackgroundLoading(@NonNull final CompletionStage<R> pendingData, @NonNull final UpdateUiInterface<R> updateUiTask) {
+        startBackgroundLoading(pendingData, updateUiTask, null, null);
+    }
+
+    /**
+     * Start a background loading from an already started asynchronous call, e.g. {@code webClient.get()...bodyToMono(...).toFuture()}. No thread is blocked
+     * while waiting for it. Will show a custom loading indicator.
+     * 
+     * @param <R>
+     *            the data type
+     * @param pendingData
+     *            the pending data; a {@link RestServiceException} completing it exceptionally is handled like a thrown one<br/>
+     *            <strong>It shall not access the UI elements in any way!</strong>
+     * @param updateUiTask
+     *            task/consumer to display the UI with the loaded data
+     * @param dataCheckingTask
+     *            allows to check the loaded data before updating the UI
+     * @param updateUiOnErrorTask
+     *            if provided, will be called in the error case instead of showing a notification. Allows for modification on the UI.
+     */
+    public static <R> void startBackgroundLoading(@NonNull final CompletionStage<R> pendingData, @NonNull final UpdateUiInterface<R> updateUiTask,
+            @Nullable final DataCheckingInterface<R> dataCheckingTask, @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask) {
+        startAsyncBackgroundLoading(() -> pendingData, updateUiTask, dataCheckingTask, updateUiOnErrorTask);
+    }
+
+    /**
+     * Start a background loading from a publisher, e.g. a {@code Flux} adapted using {@code JdkFlowAdapter.publisherToFlowPublisher(flux)}. It's only
+     * subscribed to once the operation starts, and no thread is blocked while waiting for it. Will show a custom loading indicator.
+     * 
+     * @param <T>
+     *            the item type
+     * @param publisher
+     *            the publisher of the data; a {@link RestServiceException} signalled as error is handled like a thrown one<br/>
+     *            <strong>It shall not access the UI elements in any way!</strong>
+     * @param updateUiTask
+     *            task/consumer to display the UI with all published items
+     */
+    public static <T> void startBackgroundLoading(@NonNull final Flow.Publisher<T> publisher, @NonNull final UpdateUiInterface<List<T>> updateUiTask) {
+        startBackgroundLoading(publisher, updateUiTask, null, null);
+    }
+
+    /**
+     * Start a background loading from a publisher, e.g. a {@code Flux} adapted using {@code JdkFlowAdapter.publisherToFlowPublisher(flux)}. It's only
+     * subscribed to once the operation starts, and no thread is blocked while waiting for it. Will show a custom loading indicator.
+     * 
+     * @param <T>
+     *            the item type
+     * @param publisher
+     *            the publisher of the data; a {@link RestServiceException} signalled as error is handled like a thrown one<br/>
+     *            <strong>It shall not access the UI elements in any way!</strong>
+     * @param updateUiTask
+     *            task/consumer to display the UI with all published items
+     * @param dataCheckingTask
+     *            allows to check the loaded data before updating the UI
+     * @param updateUiOnErrorTask
+     *            if provided, will be called in the error case instead of showing a notification. Allows for modification on the UI.
+     */
+    public static <T> void startBackgroundLoading(@NonNull final Flow.Publisher<T> publisher, @NonNull final UpdateUiInterface<List<T>> updateUiTask,
+            @Nullable final DataCheckingInterface<List<T>> dataCheckingTask, @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask) {
+        startAsyncBackgroundLoading(() -> subscribe(publisher, Function.identity()), updateUiTask, dataCheckingTask, updateUiOnErrorTask);
+    }
+
     /** Interface for loading the data in the background. **/
     @FunctionalInterface
     public static interface DataLoadingInterface<R> {
@@ -124,6 +830,91 @@ public final class BackgroundLoadingHelper extends BackgroundOperationManager {
         R loadData() throws BackgroundLoadingException, RestServiceException;
     }
 
+    /** Interface for loading the data asynchronously, without blocking a thread. **/
+    @FunctionalInterface
+    public static interface AsyncDataLoadingInterface<R> {
+        /**
+         * Start loading the data. Must not block, as it's called on the UI thread.
+         * 
+         * @return the stage completing with the loaded data, can be {@code null}; or exceptionally with a {@link BackgroundLoadingException} or
+         *         {@link RestServiceException}, which is handled like a thrown one
+         **/
+        @NonNull
+        CompletionStage<R> loadData();
+    }
+
+    /**
+     * A CPU-heavy computation that can be split into parts computed in parallel, whose results are merged again.
+     * 
+     * @param <T>
+     *            the input type
+     * @param <R>
+     *            the result type
+     */
+    public static interface SplittableDataTask<T, R> {
+        /**
+         * Split the input into parts to compute in parallel.
+         * 
+         * @return the parts, or {@code null} or an empty list if the input is small enough to compute it directly
+         */
+        @Nullable
+        List<T> split(@NonNull T input);
+
+        /**
+         * Compute the result of an input that isn't split any further.
+         * 
+         * @throws BackgroundLoadingException
+         *             if the input can't be computed; the contained user message will be displayed to the user
+         * @throws RestServiceException
+         *             if another exception happened
+         */
+        @Nullable
+        R compute(@NonNull T input) throws BackgroundLoadingException, RestServiceException;
+
+        /** Merge the results of two neighbouring parts. **/
+        @Nullable
+        R merge(@Nullable R left, @Nullable R right);
+
+        /**
+         * Create a task over a list, which is halved until the parts are no larger than the threshold.
+         * 
+         * @param threshold
+         *            the max size of a part to compute directly
+         * @param computeTask
+         *            computes the result of a part
+         * @param mergeTask
+         *            merges the results of two neighbouring parts
+         */
+        @NonNull
+        static <E, R> SplittableDataTask<List<E>, R> ofList(final int threshold, @NonNull final Function<List<E>, R> computeTask,
+                @NonNull final BinaryOperator<R> mergeTask) {
+            if (threshold < 1) {
+                throw new IllegalArgumentException("Threshold must be positive.");
+            }
+
+            return new SplittableDataTask<>() {
+                @Override
+                public List<List<E>> split(final List<E> input) {
+                    if (input.size() <= threshold) {
+                        return null;
+                    }
+                    final var middle = input.size() / 2;
+                    return List.of(input.subList(0, middle), input.subList(middle, input.size()));
+                }
+
+                @Override
+                public R compute(final List<E> input) {
+                    return computeTask.apply(input);
+                }
+
+                @Override
+                public R merge(final R left, final R right) {
+                    return mergeTask.apply(left, right);
+                }
+            };
+        }
+    }
+
     /** Interface for checking the loaded data fulfills the requested requirements. **/
     @FunctionalInterface
     public static interface DataCheckingInterface<R> {
@@ -136,20 +927,184 @@ public final class BackgroundLoadingHelper extends BackgroundOperationManager {
     }
 
     /**
-     * Background loading implementation of a background operation.
+     * A session-wide operation, shared by all UIs of the session.
+     * 
+     * @author bcersows
+     */
+    private static final class SessionOperation<R> implements CachedEntry {
+        /** The session-wide operations containing this one. **/
+        @NonNull
+        private final Map<String, SessionOperation<?>> sessionOperations;
+        /** The ID of the operation. **/
+        @NonNull
+        private final String operationId;
+        /** The result, once loaded. **/
+        @NonNull
+        private final CompletableFuture<R> result = new CompletableFuture<>();
+        /** The time the operation finished, in nanoseconds. **/
+        private volatile long finishedNanos;
+
+        /** Create an instance. **/
+        private SessionOperation(@NonNull final Map<String, SessionOperation<?>> sessionOperations, @NonNull final String operationId) {
+            this.sessionOperations = sessionOperations;
+            this.operationId = operationId;
+        }
+
+        /** Load the data, sharing the result. **/
+        @Nullable
+        private R load(@NonNull final DataLoadingInterface<R> loadDataTask) throws RestServiceException {
+            try {
+                final var loadedData = loadDataTask.loadData();
+                this.finishedNanos = System.nanoTime();
+                this.result.complete(loadedData);
+                return loadedData;
+            } catch (final RestServiceException | RuntimeException | Error e) {
+                fail(e);
+                throw e;
+            }
+        }
+
+        /** Fail the operation, if not finished yet. **/
+        private void fail(@NonNull final Throwable throwable) {
+            this.finishedNanos = System.nanoTime();
+            this.result.completeExceptionally(throwable);
+        }
+
+        /** Cancel the operation, if not finished yet, so no UI reattaches to it anymore. **/
+        private void cancel() {
+            if (this.result.cancel(false)) {
+                this.finishedNanos = System.nanoTime();
+            }
+        }
+
+        /** If a new UI may reattach to the operation: it's running, or finished successfully within the retention. **/
+        private boolean isReusable(@NonNull final Duration retention) {
+            if (!this.result.isDone()) {
+                return true;
+            }
+            return !this.result.isCompletedExceptionally() && System.nanoTime() - this.finishedNanos < retention.toNanos();
+        }
+
+        @Override
+        public boolean isCached() {
+            return this == this.sessionOperations.get(this.operationId) && isReusable(sessionResultRetention);
+        }
+
+        @Override
+        public void evict() {
+            this.sessionOperations.remove(this.operationId, this);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean writeThrough(final Object writtenEntity) {
+            // a running operation would overwrite the entity again
+            if (!this.result.isDone() || this.result.isCompletedExceptionally()
+                    || !BackgroundCacheInvalidation.canWriteThrough(this.result.getNow(null), writtenEntity)) {
+                return false;
+            }
+
+            this.result.obtrudeValue((R) writtenEntity);
+            this.finishedNanos = System.nanoTime();
+            return true;
+        }
+    }
+
+    /**
+     * The key of a view state snapshot: the view and its route parameters.
+     * 
+     * @author bcersows
+     */
+    @Data
+    private static final class ViewStateKey {
+        /** The navigation target. **/
+        @NonNull
+        private final Class<?> navigationTarget;
+        /** The route parameters of the navigation. **/
+        @NonNull
+        private final RouteParameters routeParameters;
+    }
+
+    /**
+     * A view state snapshot as cached entry.
+     * 
+     * @author bcersows
+     */
+    @EqualsAndHashCode(onlyExplicitlyIncluded = true)
+    private static final class ViewStateEntry implements CachedEntry {
+        /** The view state snapshots of the session. **/
+        @NonNull
+        private final Map<ViewStateKey, Object> viewStates;
+        /** The key of the snapshot. **/
+        @NonNull
+        @EqualsAndHashCode.Include
+        private final ViewStateKey viewStateKey;
+
+        /** Create an instance. **/
+        private ViewStateEntry(@NonNull final Map<ViewStateKey, Object> viewStates, @NonNull final ViewStateKey viewStateKey) {
+            this.viewStates = viewStates;
+            this.viewStateKey = viewStateKey;
+        }
+
+        @Override
+        public boolean isCached() {
+            return this.viewStates.containsKey(this.viewStateKey);
+        }
+
+        @Override
+        public void evict() {
+            this.viewStates.remove(this.viewStateKey);
+        }
+
+        @Override
+        public boolean writeThrough(final Object writtenEntity) {
+            if (!BackgroundCacheInvalidation.canWriteThrough(this.viewStates.get(this.viewStateKey), writtenEntity)) {
+                return false;
+            }
+
+            this.viewStates.put(this.viewStateKey, writtenEntity);
+            return true;
+        }
+    }
+
+    /**
+     * Background loading implementation of a background operation. Package-private so the loaders built upon it can hook into its lifecycle.
      * 
      * @author bcersows
      */
-    private static class BackgroundLoadingOperation<R> extends BackgroundOperation<R> {
+    static class BackgroundLoadingOperation<R> extends BackgroundOperation<R> {
         /** Task for checking the loading data. **/
         @Nullable
         private final DataCheckingInterface<R> dataCheckingTask;
+        /** The latest-wins slot, if any. **/
+        @Nullable
+        private final Object latestSlot;
 
         public BackgroundLoadingOperation(@NonNull final DataLoadingInterface<R> loadDataTask, @NonNull final UpdateUiInterface<R> updateUiTask,
-                @Nullable final DataCheckingInterface<R> dataCheckingTask, @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask) {
+                @Nullable final DataCheckingInterface<R> dataCheckingTask, @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask,
+                @Nullable final Object latestSlot) {
             super(loadDataTask::loadData, updateUiTask, updateUiOnErrorTask);
 
             this.dataCheckingTask = dataCheckingTask;
+            this.latestSlot = latestSlot;
+        }
+
+        public BackgroundLoadingOperation(@NonNull final ProgressDataHandlingInterface<R> loadDataTask, @NonNull final UpdateUiInterface<R> updateUiTask,
+                @Nullable final DataCheckingInterface<R> dataCheckingTask, @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask,
+                @Nullable final Object latestSlot) {
+            super(loadDataTask, updateUiTask, updateUiOnErrorTask);
+
+            this.dataCheckingTask = dataCheckingTask;
+            this.latestSlot = latestSlot;
+        }
+
+        public BackgroundLoadingOperation(@NonNull final AsyncDataLoadingInterface<R> asyncLoadDataTask, @NonNull final UpdateUiInterface<R> updateUiTask,
+                @Nullable final DataCheckingInterface<R> dataCheckingTask, @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask,
+                @Nullable final Object latestSlot) {
+            super((AsyncDataHandlingInterface<R>) asyncLoadDataTask::loadData, updateUiTask, updateUiOnErrorTask);
+
+            this.dataCheckingTask = dataCheckingTask;
+            this.latestSlot = latestSlot;
         }
 
         @Override
@@ -163,13 +1118,67 @@ public final class BackgroundLoadingHelper extends BackgroundOperationManager {
         }
 
         @Override
-        protected void preOperationSetup(final Element page, final Div loadingArea) {
-            page.setAttribute(ATTRIBUTE_BACKGROUND_LOADING, true);
+        protected BackgroundRateLimiter getRateLimiter() {
+            return rateLimiter;
+        }
+
+        @Override
+        protected String getPageAttribute() {
+            return ATTRIBUTE_BACKGROUND_LOADING;
+        }
+
+        @Override
+        protected Object getLatestSlot() {
+            return this.latestSlot;
+        }
+    }
+
+    /**
+     * Revalidation of shown data, e.g. a rendered view state snapshot or a polled result; doesn't show the loading indicator, so the data stays visible.
+     * 
+     * @author bcersows
+     */
+    static class RevalidationOperation<R> extends BackgroundLoadingOperation<R> {
+        /** Create an instance. **/
+        RevalidationOperation(@NonNull final DataLoadingInterface<R> loadDataTask, @NonNull final UpdateUiInterface<R> updateUiTask,
+                @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask, @Nullable final Object latestSlot) {
+            super(loadDataTask, updateUiTask, null, updateUiOnErrorTask, latestSlot);
+        }
+
+        @Override
+        protected boolean isShowingIndicator() {
+            return false;
+        }
+    }
+
+    /**
+     * Loading without a UI, completing the future with the result.
+     * 
+     * @author bcersows
+     */
+    private static class DetachedLoadingOperation<R> extends BackgroundLoadingOperation<R> {
+        /** The future of the loaded data. **/
+        @NonNull
+        private final CompletableFuture<R> loadedData;
+
+        /** Create an instance. **/
+        private DetachedLoadingOperation(@NonNull final DataLoadingInterface<R> loadDataTask, @NonNull final CompletableFuture<R> loadedData) {
+            super(() -> {
+                try {
+                    return loadDataTask.loadData();
+                } catch (final RuntimeException e) {
+                    loadedData.completeExceptionally(e);
+                    throw e;
+                }
+            }, loadedData::complete, null, loadedData::completeExceptionally, null);
+
+            this.loadedData = loadedData;
         }
 
         @Override
-        protected void postOperationTeardown(final Element page) {
-            page.removeAttribute(ATTRIBUTE_BACKGROUND_LOADING);
+        protected void postOperationFinish(final boolean succeeded) {
+            // finished without a result, e.g. cancelled on shutdown
+            this.loadedData.cancel(false);
         }
     }
 
@@ -0,0 +1,267 @@
+package de.bcersows.vaadinhelper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.DoubleSupplier;
+
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import com.vaadin.flow.component.ComponentUtil;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
+import com.vaadin.flow.component.html.Div;
+import com.vaadin.flow.component.progressbar.ProgressBar;
+import com.vaadin.flow.component.progressbar.ProgressBarVariant;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The loading indicator shared by all background operations of a UI. Counts the operations being shown and displays their aggregated progress; it's only
+ * removed after the last one finished.<br/>
+ * All methods must be called with the UI being locked.
+ *
+ * @author bcersows
+ */
+@Slf4j
+final class BackgroundLoadingIndicator {
+    /** Scheduler for delayed indicators and the fake progress of all UIs. **/
+    static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final var thread = new Thread(runnable, "background-operation-indicator");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** The interval of the fake progress updates. **/
+    private static final long PROGRESS_INTERVAL_MS = 1000L;
+    /** The progress reached when the data was handled. **/
+    private static final double PROGRESS_LOADED = 0.9;
+
+    /** The UI. **/
+    @NonNull
+    private final UI ui;
+    /** The progress bar. **/
+    @NonNull
+    private final ProgressBar progressBar;
+    /** The area containing the progress bar. **/
+    @Getter
+    @NonNull
+    private final Div loadingArea;
+
+    /** The progress of the shown operations. **/
+    @NonNull
+    private final List<OperationProgress> shownOperations = new ArrayList<>();
+    /** The reference counts of the page attributes set by the operations. **/
+    @NonNull
+    private final Map<String, Integer> attributeCounts = new HashMap<>();
+    /** The fake progress timer, while shown. **/
+    @Nullable
+    private ScheduledFuture<?> progressTimer;
+    /** The theme variant of the progress bar, if any. **/
+    @Nullable
+    private ProgressBarVariant shownVariant;
+
+    /** Create an instance. **/
+    private BackgroundLoadingIndicator(@NonNull final UI ui) {
+        this.ui = ui;
+
+        this.progressBar = new ProgressBar();
+        this.progressBar.setId(BackgroundOperationManager.ID_LOADING_INDICATOR);
+
+        this.loadingArea = new Div(this.progressBar);
+        this.loadingArea.setId(BackgroundOperationManager.ID_LOADING_AREA);
+    }
+
+    /** Get the indicator of the given UI, creating it if necessary. **/
+    @NonNull
+    static BackgroundLoadingIndicator get(@NonNull final UI ui) {
+        var indicator = ComponentUtil.getData(ui, BackgroundLoadingIndicator.class);
+        if (null == indicator) {
+            indicator = new BackgroundLoadingIndicator(ui);
+            ComponentUtil.setData(ui, BackgroundLoadingIndicator.class, indicator);
+        }
+        return indicator;
+    }
+
+    /**
+     * Show the indicator for another operation. Will add it to the UI for the first one.
+     *
+     * @param pageAttribute
+     *            the attribute to set on the page while the operation is shown, if any
+     * @return the progress of the operation
+     */
+    @NonNull
+    OperationProgress show(@Nullable final String pageAttribute) {
+        if (this.shownOperations.isEmpty()) {
+            this.progressBar.setValue(0);
+            this.ui.add(this.loadingArea);
+            final var timer = new AtomicReference<ScheduledFuture<?>>();
+            this.progressTimer = SCHEDULER.scheduleAtFixedRate(() -> scheduleProgressUpdate(timer), 0, PROGRESS_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            timer.set(this.progressTimer);
+        }
+        addPageAttribute(BackgroundOperationManager.ATTRIBUTE_BACKGROUND_OPERATION);
+        addPageAttribute(pageAttribute);
+
+        final var operationProgress = new OperationProgress(pageAttribute);
+        this.shownOperations.add(operationProgress);
+        refresh();
+        return operationProgress;
+    }
+
+    /** Stop showing the indicator for the operation. Will remove it from the UI after the last one. **/
+    void hide(@NonNull final OperationProgress operationProgress) {
+        if (!this.shownOperations.remove(operationProgress)) {
+            return;
+        }
+        removePageAttribute(operationProgress.pageAttribute);
+        removePageAttribute(BackgroundOperationManager.ATTRIBUTE_BACKGROUND_OPERATION);
+
+        if (this.shownOperations.isEmpty()) {
+            cancelProgressTimer();
+            this.ui.remove(this.loadingArea);
+        } else {
+            refresh();
+        }
+    }
+
+    /** Get the amount of shown operations. **/
+    int getShownOperations() {
+        return this.shownOperations.size();
+    }
+
+    /** Update the fake progress, from the timer thread. Cancels the given timer itself if the UI was detached, as the UI can't be locked anymore. **/
+    private void scheduleProgressUpdate(@NonNull final AtomicReference<ScheduledFuture<?>> timer) {
+        try {
+            this.ui.access(() -> {
+                this.shownOperations.forEach(OperationProgress::fakeProgress);
+                refresh();
+            });
+        } catch (final UIDetachedException e) {
+            log.debug("UI detached, stopping the loading indicator.");
+            // not set yet if detached before the first run; then cancelled on the next one
+            final var detachedTimer = timer.get();
+            if (null != detachedTimer) {
+                detachedTimer.cancel(false);
+            }
+        }
+    }
+
+    /** Cancel the fake progress timer. **/
+    private void cancelProgressTimer() {
+        if (null != this.progressTimer) {
+            this.progressTimer.cancel(false);
+            this.progressTimer = null;
+        }
+    }
+
+    /** Update the progress bar with the aggregated progress of all operations. **/
+    private void refresh() {
+        if (this.shownOperations.isEmpty()) {
+            return;
+        }
+        this.progressBar.setValue(this.shownOperations.stream().mapToDouble(progress -> progress.value).average().orElse(0));
+
+        final ProgressBarVariant variant;
+        if (this.shownOperations.stream().anyMatch(progress -> progress.error)) {
+            variant = ProgressBarVariant.LUMO_ERROR;
+        } else if (this.shownOperations.stream().allMatch(progress -> progress.loaded)) {
+            variant = ProgressBarVariant.LUMO_SUCCESS;
+        } else {
+            variant = null;
+        }
+
+        // only change the theme if necessary, as it's refreshed on every tick
+        if (variant != this.shownVariant) {
+            if (null != this.shownVariant) {
+                this.progressBar.removeThemeVariants(this.shownVariant);
+            }
+            if (null != variant) {
+                this.progressBar.addThemeVariants(variant);
+            }
+            this.shownVariant = variant;
+        }
+    }
+
+    /** Increase the reference count of the page attribute, setting it for the first one. **/
+    private void addPageAttribute(@Nullable final String pageAttribute) {
+        if (null != pageAttribute && 1 == this.attributeCounts.merge(pageAttribute, 1, Integer::sum)) {
+            this.ui.getElement().setAttribute(pageAttribute, true);
+        }
+    }
+
+    /** Decrease the reference count of the page attribute, removing it after the last one. **/
+    private void removePageAttribute(@Nullable final String pageAttribute) {
+        if (null != pageAttribute && null == this.attributeCounts.computeIfPresent(pageAttribute, (key, count) -> count > 1 ? count - 1 : null)) {
+            this.ui.getElement().removeAttribute(pageAttribute);
+        }
+    }
+
+    /**
+     * The progress of a single shown operation.
+     *
+     * @author bcersows
+     */
+    final class OperationProgress {
+        /** The page attribute set for the operation. **/
+        @Nullable
+        private final String pageAttribute;
+        /** The current progress. **/
+        private double value;
+        /** If the data was handled. **/
+        private boolean loaded;
+        /** If the operation took too long or failed. **/
+        private boolean error;
+        /** The progress reported by the operation, negative if none. **/
+        @Nullable
+        private DoubleSupplier reportedProgress;
+
+        /** Create an instance. **/
+        private OperationProgress(@Nullable final String pageAttribute) {
+            this.pageAttribute = pageAttribute;
+        }
+
+        /** Show the progress reported by the operation instead of the fake progress, once it reports any. **/
+        void trackReportedProgress(@NonNull final DoubleSupplier reportedProgress) {
+            this.reportedProgress = reportedProgress;
+        }
+
+        /** Mark the data as handled, successfully or not. **/
+        void markLoaded(final boolean valid) {
+            this.value = PROGRESS_LOADED;
+            this.loaded = true;
+            this.error = !valid;
+            refresh();
+        }
+
+        /** Mark the operation as done. **/
+        void markDone() {
+            this.value = 1.0;
+            refresh();
+        }
+
+        /** Increase the fake progress until the data was handled; flag as error if it takes too long. Reported progress is shown as is. **/
+        private void fakeProgress() {
+            if (this.loaded) {
+                return;
+            }
+            final var reported = null != this.reportedProgress ? this.reportedProgress.getAsDouble() : -1;
+            if (reported >= 0) {
+                this.value = reported * PROGRESS_LOADED;
+                return;
+            }
+            if (this.value < PROGRESS_LOADED) {
+                this.value = Math.min(PROGRESS_LOADED, this.value + 0.1);
+            } else {
+                this.error = true;
+            }
+        }
+    }
+}
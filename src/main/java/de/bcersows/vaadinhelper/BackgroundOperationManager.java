@@ -1,22 +1,47 @@
 package de.bcersows.vaadinhelper;
 
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.context.request.RequestContextHolder;
 
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.ComponentUtil;
 import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
 import com.vaadin.flow.component.html.Div;
-import com.vaadin.flow.component.progressbar.ProgressBar;
-import com.vaadin.flow.component.progressbar.ProgressBarVariant;
 import com.vaadin.flow.dom.Element;
+import com.vaadin.flow.server.Command;
+import com.vaadin.flow.server.VaadinSession;
+import com.vaadin.flow.shared.Registration;
 
+import de.bcersows.vaadinhelper.BackgroundOperationRegistry.ShutdownInProgressException;
 import de.bcersows.vaadinhelper.helpers.LogHelper;
 import de.bcersows.vaadinhelper.helpers.NotificationHelper;
+import de.bcersows.vaadinhelper.helpers.TracingHelper;
+import de.bcersows.vaadinhelper.helpers.TracingHelper.Span;
 import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -43,6 +68,44 @@ public abstract class BackgroundOperationManager {
     /** Attribute indicating the background operation is finished. **/
     public static final String ATTRIBUTE_BACKGROUND_OPERATION_DONE = "background-operation-done";
 
+    /** Span name for the time until the operation thread runs. **/
+    public static final String SPAN_QUEUE_WAIT = "queue-wait";
+    /** Span name for the data task. **/
+    public static final String SPAN_DATA_TASK = "data-task";
+    /** Span name for the data check. **/
+    public static final String SPAN_DATA_CHECK = "data-check";
+    /** Span name for the UI preparation. **/
+    public static final String SPAN_UI_PREPARE = "ui-prepare";
+    /** Span name for the UI update. **/
+    public static final String SPAN_UI_UPDATE = "ui-update";
+
+    /** The UI data key for the running operations per latest-wins slot. **/
+    private static final String DATA_LATEST_SLOTS = BackgroundOperationManager.class.getName() + ".latestSlots";
+
+    /** The completion of the last operation per ordering key, while any is queued or running. **/
+    @NonNull
+    private static final Map<String, CompletableFuture<Void>> ORDERED_OPERATIONS = new ConcurrentHashMap<>();
+
+    /** The time an operation may take before the loading indicator is shown. **/
+    @NonNull
+    private static volatile Duration indicatorDelay = Duration.ZERO;
+
+    /**
+     * Set the time an operation may take before the loading indicator is shown. Faster operations will not change the UI apart from their actual update. Zero
+     * shows it right away (default).
+     */
+    public static void setIndicatorDelay(@NonNull final Duration indicatorDelay) {
+        BackgroundOperationManager.indicatorDelay = indicatorDelay;
+    }
+
+    /** The type of a background operation. **/
+    public enum OperationType {
+        /** Reading data; can be cancelled and redone at any time. **/
+        LOAD,
+        /** Writing data; should be finished if possible. **/
+        UPDATE;
+    }
+
     /** Interface for handling the data in the background. **/
     @FunctionalInterface
     public static interface DataHandlingInterface<R> {
@@ -57,6 +120,42 @@ public abstract class BackgroundOperationManager {
         R handleData() throws RestServiceException;
     }
 
+    /** Interface for handling the data in the background, reporting its progress. **/
+    @FunctionalInterface
+    public static interface ProgressDataHandlingInterface<R> {
+        /**
+         * Load the data.
+         * 
+         * @param progressReporter
+         *            reporter for the progress of the task, shown by the loading indicator
+         * @return the loaded data, can be {@code null}
+         * @throws RestServiceException
+         *             if an exception happened during the rest call.
+         **/
+        @Nullable
+        R handleData(@NonNull ProgressReporter progressReporter) throws RestServiceException;
+    }
+
+    /** Interface for reporting the progress of a data task. **/
+    @FunctionalInterface
+    public static interface ProgressReporter {
+        /** Report the progress, from {@code 0} to {@code 1}. Can be called from any thread. **/
+        void reportProgress(double progress);
+    }
+
+    /** Interface for handling the data asynchronously, without blocking a thread. **/
+    @FunctionalInterface
+    public static interface AsyncDataHandlingInterface<R> {
+        /**
+         * Start handling the data. Must not block.
+         * 
+         * @return the stage completing with the data, can be {@code null}; or exceptionally with a {@link RestServiceException} if an exception happened
+         *         during the rest call
+         **/
+        @NonNull
+        CompletionStage<R> handleData();
+    }
+
     /** Interface for updating the UI after loading. **/
     @FunctionalInterface
     public static interface UpdateUiInterface<R> {
@@ -64,6 +163,20 @@ public abstract class BackgroundOperationManager {
         void updateUi(@Nullable R loadedData);
     }
 
+    /** Interface for preparing the UI update in the background. **/
+    @FunctionalInterface
+    public static interface PrepareUiInterface<R, P> {
+        /**
+         * Build the detached components and view models for the loaded data. Runs in the background thread, so it must not access the UI in any way.
+         * 
+         * @return the prepared components or view models, passed to the attaching task; can be {@code null}
+         * @throws RestServiceException
+         *             if the data can't be prepared
+         **/
+        @Nullable
+        P prepareUi(@Nullable R loadedData) throws RestServiceException;
+    }
+
     /** Interface for doing stuff with the UI in case of an error. **/
     @FunctionalInterface
     public static interface UpdateUiOnErrorInterface {
@@ -77,9 +190,12 @@ public abstract class BackgroundOperationManager {
      * @author bcersows
      */
     protected abstract static class BackgroundOperation<R> {
-        /** The task to handle data. **/
-        @NonNull
-        private final DataHandlingInterface<R> dataHandlingTask;
+        /** The task to handle data in a background thread, if blocking. **/
+        @Nullable
+        private final ProgressDataHandlingInterface<R> dataHandlingTask;
+        /** The task to handle data without blocking, if asynchronous. **/
+        @Nullable
+        private final AsyncDataHandlingInterface<R> asyncDataHandlingTask;
         /** The task to update the UI on success. **/
         @NonNull
         private final UpdateUiInterface<R> updateUiTask;
@@ -100,7 +216,44 @@ public abstract class BackgroundOperationManager {
          */
         protected BackgroundOperation(@NonNull final DataHandlingInterface<R> dataHandlingTask, @NonNull final UpdateUiInterface<R> updateUiTask,
                 @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask) {
+            this((ProgressDataHandlingInterface<R>) progressReporter -> dataHandlingTask.handleData(), updateUiTask, updateUiOnErrorTask);
+        }
+
+        /**
+         * Create an instance reporting the progress of the data handling.
+         * 
+         * @param dataHandlingTask
+         *            task/provider for data handling; its reported progress is shown by the loading indicator<br/>
+         *            <strong>This task shall not access the UI elements in any way! In case of a problem, throw the appropriate exception!</strong>
+         * @param updateUiTask
+         *            task/consumer to display the UI with the loaded data
+         * @param updateUiOnErrorTask
+         *            if provided, will be called in the error case instead of showing a notification. Allows for modification on the UI.
+         */
+        protected BackgroundOperation(@NonNull final ProgressDataHandlingInterface<R> dataHandlingTask, @NonNull final UpdateUiInterface<R> updateUiTask,
+                @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask) {
             this.dataHandlingTask = dataHandlingTask;
+            this.asyncDataHandlingTask = null;
+            this.updateUiTask = updateUiTask;
+            this.updateUiOnErrorTask = updateUiOnErrorTask;
+        }
+
+        /**
+         * Create an instance handling the data without blocking a thread.
+         * 
+         * @param asyncDataHandlingTask
+         *            task/provider starting the data handling; is called on the UI thread, so must not block<br/>
+         *            <strong>The returned stage shall not access the UI elements in any way! In case of a problem, complete it with the appropriate
+         *            exception!</strong>
+         * @param updateUiTask
+         *            task/consumer to display the UI with the loaded data
+         * @param updateUiOnErrorTask
+         *            if provided, will be called in the error case instead of showing a notification. Allows for modification on the UI.
+         */
+        protected BackgroundOperation(@NonNull final AsyncDataHandlingInterface<R> asyncDataHandlingTask, @NonNull final UpdateUiInterface<R> updateUiTask,
+                @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask) {
+            this.dataHandlingTask = null;
+            this.asyncDataHandlingTask = asyncDataHandlingTask;
             this.updateUiTask = updateUiTask;
             this.updateUiOnErrorTask = updateUiOnErrorTask;
         }
@@ -121,114 +274,294 @@ public abstract class BackgroundOperationManager {
                 throw new IllegalStateException("Background operation must be started from a valid UI location.");
             }
 
+            start(ui, RequestContextHolder.currentRequestAttributes());
+        }
+
+        /**
+         * Start the operation without a UI, e.g. from a scheduled job or a startup hook. It's rate limited, ordered, traced and drained on shutdown like
+         * the operations of a UI, but doesn't show a loading indicator or take a latest-wins slot. The UI tasks are called in the background thread, so
+         * must not access any UI; errors are logged unless an error task was provided.
+         */
+        public final void startDetachedOperation() {
+            start(null, RequestContextHolder.getRequestAttributes());
+        }
+
+        /**
+         * Start the operation, with the UI being locked if any.
+         */
+        private void start(@Nullable final UI ui, @Nullable final RequestAttributes requestContext) {
             // store request context data
             final var authentication = SecurityContextHolder.getContext().getAuthentication();
-            final var requestContext = RequestContextHolder.currentRequestAttributes();
 
             final var sessionId = LogHelper.getSessionId();
 
+            // trace the operation; operations started from within another one are its children
+            final var operationSpan = TracingHelper.startSpan(getOperationName(), TracingHelper.getCurrentSpan());
+            if (null != operationSpan) {
+                operationSpan.setAttribute("operation.type", getOperationType().name());
+            }
+
+            // check the rate limit of the principal; rejected operations are reported like failed ones
+            final var rateLimiter = getRateLimiter();
+            if (null != rateLimiter && !rateLimiter.tryAcquire(getPrincipalKey(authentication, sessionId, null == ui))) {
+                log.debug("Rate limit exceeded, rejecting background operation.");
+                rejectOperation(ui, new RateLimitExceededException(), operationSpan);
+                return;
+            }
+
+            // there may be no session to order by, e.g. for a detached operation started outside of a request
+            final var execution = new Execution(ui, operationSpan, getOrderingKey(null == VaadinSession.getCurrent() ? null : sessionId));
+            if (null != this.dataHandlingTask) {
+                startInThread(execution, this.dataHandlingTask, authentication, requestContext, sessionId);
+            } else if (null != this.asyncDataHandlingTask) {
+                startAsynchronously(execution, this.asyncDataHandlingTask);
+            }
+        }
+
+        /**
+         * Run the blocking data task in a new thread.
+         */
+        private void startInThread(@NonNull final Execution execution, @NonNull final ProgressDataHandlingInterface<R> dataTask,
+                @Nullable final Authentication authentication, @Nullable final RequestAttributes requestContext, @NonNull final String sessionId) {
             // create a thread to load the data...
+            final var queueSpan = TracingHelper.startSpan(SPAN_QUEUE_WAIT, execution.operationSpan);
             final var bgLoadingThread = new Thread(() -> {
+                TracingHelper.endSpan(queueSpan);
+
                 // set the actual request context data
                 SecurityContextHolder.getContext().setAuthentication(authentication);
                 RequestContextHolder.setRequestAttributes(requestContext);
                 LogHelper.putSessionIdIntoMdc(sessionId);
 
-                // create the progress bar and add it to the UI
-                final var loadingIndicator = new ProgressBar();
-                loadingIndicator.setId(ID_LOADING_INDICATOR);
+                // cancelled while waiting for preceding operations
+                if (execution.isCancelled()) {
+                    execution.finish();
+                    return;
+                }
 
-                final var loadingArea = new Div(loadingIndicator);
-                loadingArea.setId(ID_LOADING_AREA);
+                execution.showIndicator();
 
-                ui.access(() -> {
-                    final var page = ui.getElement();
-                    page.setAttribute(ATTRIBUTE_BACKGROUND_OPERATION, true);
-                    preOperationSetup(page, loadingArea);
-                    page.removeAttribute(ATTRIBUTE_BACKGROUND_OPERATION_DONE);
-                    ui.add(loadingArea);
-                });
+                final var dataSpan = execution.startDataSpan();
+                try {
+                    // load the data, with the trace context being available for the task
+                    final R loadedData;
+                    try (final var scope = TracingHelper.activate(dataSpan)) {
+                        loadedData = dataTask.handleData(execution::reportProgress);
+                    }
+                    execution.handleData(loadedData);
+                } catch (final Exception e) {
+                    execution.handleException(e);
+                } finally {
+                    execution.finish();
+                }
+            });
+            bgLoadingThread.setName("background-data-operation");
 
-                // create/start a timer increasing the loading indicator to fake progress
-                final var cancelTimer = createUpdateTimer(ui, loadingIndicator);
+            // ... and start it once the preceding operations finished, unless shutting down
+            if (!execution.register(bgLoadingThread::interrupt)) {
+                TracingHelper.endSpan(queueSpan);
+                return;
+            }
+            execution.startInOrder(bgLoadingThread::start);
+        }
 
-                try {
-                    // load the data
-                    final var loadedData = dataHandlingTask.handleData();
-
-                    // start the UI update (after verifying)
-                    ui.access(() -> {
-                        // last step indicator
-                        loadingIndicator.setValue(0.9);
-
-                        // check if data was ok
-                        final var continueDisplaying = postDataLoad(loadedData);
-                        if (!continueDisplaying) {
-                            // mark the indicator with error
-                            loadingIndicator.addThemeVariants(ProgressBarVariant.LUMO_ERROR);
-                            return;
-                        }
+        /**
+         * Start the asynchronous data task and handle its result once completed. No thread is blocked while waiting.
+         */
+        private void startAsynchronously(@NonNull final Execution execution, @NonNull final AsyncDataHandlingInterface<R> asyncDataTask) {
+            final var pendingData = new AtomicReference<CompletableFuture<R>>();
+            if (!execution.register(() -> {
+                final var future = pendingData.get();
+                if (null != future) {
+                    future.cancel(true);
+                }
+            })) {
+                return;
+            }
 
-                        // loaded data valid, update the progress bar...
-                        loadingIndicator.removeThemeVariants(ProgressBarVariant.LUMO_ERROR);
-                        loadingIndicator.addThemeVariants(ProgressBarVariant.LUMO_SUCCESS);
+            execution.startInOrder(() -> {
+                // cancelled while waiting for preceding operations
+                if (execution.isCancelled()) {
+                    execution.finish();
+                    return;
+                }
 
-                        // ... and then the UI
-                        updateUiTask.updateUi(loadedData);
-                        loadingIndicator.setValue(1.0);
+                execution.showIndicator();
 
-                        ui.getElement().setAttribute(ATTRIBUTE_BACKGROUND_OPERATION_DONE, true);
-                    });
-                } catch (final RestServiceException restServiceException) {
-                    log.debug("Background loading exception detected!", restServiceException);
+                // start the data task, with the trace context being available for it
+                final var dataSpan = execution.startDataSpan();
+                final CompletableFuture<R> future;
+                try (final var scope = TracingHelper.activate(dataSpan)) {
+                    future = asyncDataTask.handleData().toCompletableFuture();
+                } catch (final RuntimeException e) {
+                    execution.handleException(e);
+                    execution.finish();
+                    return;
+                }
+                pendingData.set(future);
+                if (execution.isCancelled()) {
+                    future.cancel(true);
+                }
 
-                    // if a custom exception handler was passed, use it; otherwise show a notification
-                    ui.access(() -> {
-                        if (null != updateUiOnErrorTask) {
-                            // error task, call it
-                            updateUiOnErrorTask.runOnUiAfterError(restServiceException);
+                // handle the result in whichever thread completes it
+                future.whenComplete((loadedData, throwable) -> {
+                    try {
+                        if (null == throwable) {
+                            execution.handleData(loadedData);
                         } else {
-                            // show notification with the user message
-                            NotificationHelper.showException(restServiceException.getUserMessage(), restServiceException);
+                            execution.handleException(throwable);
                         }
-
-                        // add the background loaded attribute, even tho an error happened
-                        ui.getElement().setAttribute(ATTRIBUTE_BACKGROUND_OPERATION_DONE, true);
-                    });
-                } catch (final Exception e) {
-                    log.error("Could not finish background operation.", e);
-                } finally {
-                    // cancel timer
-                    cancelTimer.run();
-
-                    // clean up UI again
-                    ui.access(() -> {
-                        final var page = ui.getElement();
-                        page.removeAttribute(ATTRIBUTE_BACKGROUND_OPERATION);
-                        postOperationTeardown(page);
-                        ui.remove(loadingArea);
-                    });
-                }
+                    } finally {
+                        execution.finish();
+                    }
+                });
             });
-            // ... and start it
-            bgLoadingThread.setName("background-data-operation");
-            bgLoadingThread.start();
         }
 
         /**
-         * Can update the page after finishing the operation.
+         * Reject the operation before starting it, reporting the exception like a failed one. Must be called with the UI being locked, if any.
+         */
+        private void rejectOperation(@Nullable final UI ui, @NonNull final RestServiceException restServiceException, @Nullable final Span operationSpan) {
+            TracingHelper.failSpan(operationSpan, restServiceException);
+            TracingHelper.endSpan(operationSpan);
+            handleError(ui, restServiceException);
+            postOperationFinish(false);
+        }
+
+        /**
+         * Handle the given exception on the UI: call the custom error task or show a notification. Must be called with the UI being locked, if any.
+         */
+        private void handleError(@Nullable final UI ui, @NonNull final RestServiceException restServiceException) {
+            if (null != updateUiOnErrorTask) {
+                // error task, call it
+                updateUiOnErrorTask.runOnUiAfterError(restServiceException);
+            } else if (null != ui) {
+                // show notification with the user message
+                NotificationHelper.showException(restServiceException.getUserMessage(), restServiceException);
+            } else {
+                // nobody to show it to
+                log.warn("Detached background operation failed: {}", restServiceException.getMessage(), restServiceException);
+            }
+
+            // add the background loaded attribute, even tho an error happened
+            if (null != ui) {
+                ui.getElement().setAttribute(ATTRIBUTE_BACKGROUND_OPERATION_DONE, true);
+            }
+        }
+
+        /**
+         * The type of the operation. Decides how it's treated on shutdown.
+         */
+        @NonNull
+        protected OperationType getOperationType() {
+            // loading as default
+            return OperationType.LOAD;
+        }
+
+        /**
+         * The name of the operation for its trace span and the drain report. Defaults to the simple class name, or the one of the nearest named superclass
+         * for anonymous operations, which have none.
+         */
+        @NonNull
+        protected String getOperationName() {
+            Class<?> operationClass = getClass();
+            while (operationClass.isAnonymousClass()) {
+                operationClass = operationClass.getSuperclass();
+            }
+            return operationClass.getSimpleName();
+        }
+
+        /**
+         * The key of the operations to run in submission order: the operation only starts after all preceding ones with the same key finished. If
+         * {@code null}, the operation runs in parallel to all others.
+         * 
+         * @param sessionId
+         *            the ID of the current session, e.g. to order per session; {@code null} if there is none, e.g. for a detached operation
+         */
+        @Nullable
+        protected String getOrderingKey(@Nullable final String sessionId) {
+            // parallel as default
+            return null;
+        }
+
+        /**
+         * The slot of the operation for latest-wins mode, e.g. the component showing the result. Starting an operation cancels the running one of the
+         * same slot in the UI, and only the result of the latest one is applied. If {@code null}, the operation is independent of others.
+         */
+        @Nullable
+        protected Object getLatestSlot() {
+            // independent as default
+            return null;
+        }
+
+        /**
+         * The rate limiter to check before starting the operation. If {@code null}, the operation is not limited.
+         */
+        @Nullable
+        protected BackgroundRateLimiter getRateLimiter() {
+            // not limited as default
+            return null;
+        }
+
+        /**
+         * Get the key to rate limit the current principal by: the name of the authenticated user, the operation class for anonymous detached operations (so
+         * they don't share the key of all requests without a session), or the session ID for anonymous access.
+         */
+        @NonNull
+        private String getPrincipalKey(@Nullable final Authentication authentication, @NonNull final String sessionId, final boolean detached) {
+            if (null != authentication && authentication.isAuthenticated() && !(authentication instanceof AnonymousAuthenticationToken)) {
+                return authentication.getName();
+            } else if (detached) {
+                return "detached:" + getClass().getName();
+            } else {
+                return sessionId;
+            }
+        }
+
+        /**
+         * If the operation shows the loading indicator. Speculative operations the user didn't ask for, e.g. prefetches, shouldn't.
+         */
+        protected boolean isShowingIndicator() {
+            // shown as default
+            return true;
+        }
+
+        /**
+         * The attribute to set on the page while the operation is in progress, if any. It's kept while any operation with the same attribute is in progress.
+         */
+        @Nullable
+        protected String getPageAttribute() {
+            // nothing as default
+            return null;
+        }
+
+        /**
+         * Can update the page or the shared loading area after finishing the operation.
          */
-        protected void postOperationTeardown(@NonNull final Element page) {
+        protected void postOperationTeardown(@NonNull final Element page, @NonNull final Div loadingArea) {
             // nothing as default
         }
 
         /**
-         * Can update the page or loading area before starting the operation.
+         * Can update the page or the shared loading area before starting the operation.
          */
         protected void preOperationSetup(@NonNull final Element page, @NonNull final Div loadingArea) {
             // nothing as default
         }
 
+        /**
+         * Called once the data task succeeded, before the UI update; also if the UI update is skipped afterwards, e.g. as the UI was detached meanwhile or
+         * the data check failed. Called in the background thread, without the UI being locked.
+         * 
+         * @param session
+         *            the session the operation was started from, or {@code null} if detached
+         * @param handledData
+         *            the data returned by the data task
+         */
+        protected void postDataHandled(@Nullable final VaadinSession session, @Nullable final R handledData) {
+            // nothing as default
+        }
+
         /**
          * Check the loaded data, and return if it's valid and can be displayed.
          */
@@ -238,34 +571,453 @@ public abstract class BackgroundOperationManager {
         }
 
         /**
-         * Create a timer that updates the loading indicator regularly. Returns a runnable that cancels the timer.
+         * Called once the operation finished however it ended, e.g. also if it failed, was rejected or cancelled on shutdown, or its UI was detached. Called
+         * in any thread, without the UI being locked; UI updates queued by the operation may still be pending, so use {@link UI#access(Command)} to run
+         * after them.
+         * 
+         * @param succeeded
+         *            if the data task succeeded
          */
-        @NonNull
-        private Runnable createUpdateTimer(@NonNull final UI ui, @NonNull final ProgressBar loadingIndicator) {
-            // counter to store the current fake task progress
-            final var progressCounter = new AtomicInteger();
-            // create the timer task to update the loading indicator
-            final TimerTask task = new TimerTask() {
-                @Override
-                public void run() {
-                    if (loadingIndicator.getValue() < 0.9) {
-                        ui.access(() -> loadingIndicator.setValue(progressCounter.incrementAndGet() / 10.0));
-                    } else {
-                        // cancel itself and set to error variation
-                        ui.access(() -> loadingIndicator.addThemeVariants(ProgressBarVariant.LUMO_ERROR));
-                        this.cancel();
+        protected void postOperationFinish(final boolean succeeded) {
+            // nothing as default
+        }
+
+        /**
+         * A single execution of the operation, tracking its loading indicator, registration and trace.
+         * 
+         * @author bcersows
+         */
+        private final class Execution {
+            /** The UI the operation was started from, or {@code null} if detached. **/
+            @Nullable
+            private final UI ui;
+            /** The session of the UI, captured at the start, as the UI may be detached later on. **/
+            @Nullable
+            private final VaadinSession session;
+            /** The span of the whole operation, if tracing. **/
+            @Nullable
+            private final Span operationSpan;
+            /** The span of the data task, if tracing. **/
+            @Nullable
+            private Span dataSpan;
+            /** The registration in the registry, while running. **/
+            @Nullable
+            private Registration registration;
+            /** The scheduled indicator, if delayed. **/
+            @Nullable
+            private ScheduledFuture<?> scheduledIndicator;
+            /** The key to order the operation by, if any. **/
+            @Nullable
+            private final String orderingKey;
+            /** The completion of the operation for succeeding ordered ones, if ordered. **/
+            @Nullable
+            private CompletableFuture<Void> orderedCompletion;
+            /** Cancels the operation, once registered. **/
+            @Nullable
+            private Runnable canceller;
+            /** Supersedes the operation in its latest-wins slot, if any. **/
+            @Nullable
+            private Runnable supersedeTask;
+            /** If the operation was cancelled. **/
+            private volatile boolean cancelled;
+            /** If a newer operation of the same latest-wins slot was started. **/
+            private volatile boolean superseded;
+            /** The progress reported by the data task, or {@code -1} if none. **/
+            private volatile double reportedProgress = -1;
+            /** If the data task succeeded. **/
+            private volatile boolean succeeded;
+
+            // only accessed with the UI being locked
+            /** If the operation finished already. **/
+            private boolean finished;
+            /** The progress in the shared indicator, once shown. **/
+            @Nullable
+            private BackgroundLoadingIndicator.OperationProgress progress;
+
+            /** Create an instance. **/
+            private Execution(@Nullable final UI ui, @Nullable final Span operationSpan, @Nullable final String orderingKey) {
+                this.ui = ui;
+                this.session = null == ui ? null : ui.getSession();
+                this.operationSpan = operationSpan;
+                this.orderingKey = orderingKey;
+            }
+
+            /**
+             * Register the execution in the registry, and reset the done state. Must be called with the UI being locked, if any.
+             * 
+             * @return if the operation may start; otherwise it was rejected already
+             */
+            private boolean register(@NonNull final Runnable canceller) {
+                this.canceller = canceller;
+                this.registration = BackgroundOperationRegistry.getInstance().register(getOperationType(), getOperationName(), this::cancel);
+                if (null == this.registration) {
+                    log.debug("Shutdown in progress, rejecting background operation.");
+                    rejectOperation(this.ui, new ShutdownInProgressException(), this.operationSpan);
+                    return false;
+                }
+
+                if (null == this.ui) {
+                    return true;
+                }
+
+                // take over the latest-wins slot, cancelling the preceding operation
+                final var latestSlot = getLatestSlot();
+                if (null != latestSlot) {
+                    this.supersedeTask = this::supersede;
+                    final var preceding = getLatestSlots(this.ui).put(latestSlot, this.supersedeTask);
+                    if (null != preceding) {
+                        log.debug("Superseding running background operation.");
+                        preceding.run();
                     }
                 }
-            };
-            // create the timer and schedule the task
-            final Timer timer = new Timer("BackgroundOperationUpdateTimer");
-            timer.scheduleAtFixedRate(task, 0, 1000l);
 
-            // return the runnable to cancel the task
-            return () -> {
-                task.cancel();
-                timer.cancel();
-            };
+                // reset the done state right away, as the UI is still locked
+                this.ui.getElement().removeAttribute(ATTRIBUTE_BACKGROUND_OPERATION_DONE);
+                return true;
+            }
+
+            /**
+             * Start the operation right away, or after the preceding operation with the same ordering key finished. Waiting doesn't block any thread.
+             */
+            private void startInOrder(@NonNull final Runnable start) {
+                if (null == this.orderingKey) {
+                    start.run();
+                    return;
+                }
+
+                this.orderedCompletion = new CompletableFuture<>();
+                final var preceding = ORDERED_OPERATIONS.put(this.orderingKey, this.orderedCompletion);
+                if (null == preceding) {
+                    start.run();
+                } else {
+                    log.debug("Queueing ordered background operation.");
+                    preceding.whenComplete((result, throwable) -> start.run());
+                }
+            }
+
+            /** Cancel the operation. **/
+            private void cancel() {
+                this.cancelled = true;
+                if (null != this.canceller) {
+                    this.canceller.run();
+                }
+            }
+
+            /** Cancel the operation as a newer one of its slot was started; its result will be discarded. **/
+            private void supersede() {
+                this.superseded = true;
+                cancel();
+            }
+
+            /** Report the progress of the data task; it's shown with the next update of the loading indicator. **/
+            private void reportProgress(final double progress) {
+                this.reportedProgress = Math.max(0, Math.min(1, progress));
+            }
+
+            /** If the operation was cancelled, e.g. on shutdown. **/
+            private boolean isCancelled() {
+                return this.cancelled;
+            }
+
+            /** Start the span of the data task. **/
+            @Nullable
+            private Span startDataSpan() {
+                this.dataSpan = TracingHelper.startSpan(SPAN_DATA_TASK, this.operationSpan);
+                return this.dataSpan;
+            }
+
+            /**
+             * Show the loading indicator shared by the UI, if the operation takes longer than the indicator delay.
+             */
+            private void showIndicator() {
+                if (!isShowingIndicator() || null == this.ui) {
+                    return;
+                }
+
+                final Runnable showIndicator = () -> access(() -> {
+                    if (this.finished) {
+                        // too late, nothing to show anymore
+                        return;
+                    }
+                    final var loadingIndicator = BackgroundLoadingIndicator.get(this.ui);
+                    this.progress = loadingIndicator.show(getPageAttribute());
+                    this.progress.trackReportedProgress(() -> this.reportedProgress);
+                    preOperationSetup(this.ui.getElement(), loadingIndicator.getLoadingArea());
+                });
+
+                final var delay = indicatorDelay;
+                if (delay.isZero()) {
+                    showIndicator.run();
+                } else {
+                    this.scheduledIndicator = BackgroundLoadingIndicator.SCHEDULER.schedule(showIndicator, delay.toMillis(), TimeUnit.MILLISECONDS);
+                }
+            }
+
+            /** Check the handled data and update the UI with it. **/
+            private void handleData(@Nullable final R loadedData) {
+                TracingHelper.endSpan(this.dataSpan);
+                this.succeeded = true;
+                try {
+                    postDataHandled(this.session, loadedData);
+                } catch (final RuntimeException e) {
+                    log.error("Could not finish handling the data of the background operation.", e);
+                }
+
+                // start the UI update (after verifying)
+                access(() -> {
+                    if (this.superseded) {
+                        log.debug("Discarding result of superseded background operation.");
+                        return;
+                    }
+
+                    // check if data was ok and update the indicator accordingly
+                    final var checkSpan = TracingHelper.startSpan(SPAN_DATA_CHECK, this.operationSpan);
+                    final boolean continueDisplaying;
+                    try (final var scope = TracingHelper.activate(checkSpan)) {
+                        continueDisplaying = postDataLoad(loadedData);
+                    }
+                    TracingHelper.endSpan(checkSpan);
+                    if (null != this.progress) {
+                        this.progress.markLoaded(continueDisplaying);
+                    }
+                    if (!continueDisplaying) {
+                        return;
+                    }
+
+                    // loaded data valid, update the UI; operations started from there are children of this one
+                    final var uiSpan = TracingHelper.startSpan(SPAN_UI_UPDATE, this.operationSpan);
+                    try (final var scope = TracingHelper.activate(uiSpan)) {
+                        updateUiTask.updateUi(loadedData);
+                    }
+                    TracingHelper.endSpan(uiSpan);
+                    if (null != this.progress) {
+                        this.progress.markDone();
+                    }
+
+                    if (null != this.ui) {
+                        this.ui.getElement().setAttribute(ATTRIBUTE_BACKGROUND_OPERATION_DONE, true);
+                    }
+                });
+            }
+
+            /** Handle an exception of the data task. **/
+            private void handleException(@NonNull final Throwable throwable) {
+                // unwrap exceptions of asynchronous tasks
+                final var cause = (throwable instanceof CompletionException || throwable instanceof ExecutionException) && null != throwable.getCause()
+                        ? throwable.getCause()
+                        : throwable;
+                if (this.superseded) {
+                    log.debug("Superseded background operation ended with {}.", cause.toString());
+                    return;
+                }
+                TracingHelper.failSpan(this.dataSpan, cause);
+                TracingHelper.failSpan(this.operationSpan, cause);
+
+                if (cause instanceof RestServiceException) {
+                    log.debug("Background loading exception detected!", cause);
+
+                    // if a custom exception handler was passed, use it; otherwise show a notification
+                    access(() -> handleError(this.ui, (RestServiceException) cause));
+                } else if (cause instanceof CancellationException) {
+                    log.debug("Background operation was cancelled.");
+                } else {
+                    log.error("Could not finish background operation.", cause);
+                }
+            }
+
+            /**
+             * Run the command with the UI being locked; skipped if the UI was detached meanwhile, e.g. by a page reload. Runs right away if the operation is
+             * detached.
+             */
+            private void access(@NonNull final Command command) {
+                if (null == this.ui) {
+                    command.execute();
+                    return;
+                }
+
+                try {
+                    this.ui.access(command);
+                } catch (final UIDetachedException e) {
+                    log.debug("UI detached, skipping UI access of background operation.");
+                }
+            }
+
+            /** Clean up after the operation finished. **/
+            private void finish() {
+                TracingHelper.endSpan(this.dataSpan);
+
+                if (null != this.registration) {
+                    this.registration.remove();
+                }
+
+                // let the succeeding ordered operation start
+                if (null != this.orderedCompletion) {
+                    ORDERED_OPERATIONS.remove(this.orderingKey, this.orderedCompletion);
+                    this.orderedCompletion.complete(null);
+                }
+
+                // don't show the indicator anymore, if not shown yet
+                if (null != this.scheduledIndicator) {
+                    this.scheduledIndicator.cancel(false);
+                }
+
+                // clean up UI again, if the indicator was shown at all; it's removed after the last operation of the UI
+                access(() -> {
+                    this.finished = true;
+                    if (null != this.supersedeTask) {
+                        getLatestSlots(this.ui).remove(getLatestSlot(), this.supersedeTask);
+                    }
+                    if (null != this.progress) {
+                        final var loadingIndicator = BackgroundLoadingIndicator.get(this.ui);
+                        postOperationTeardown(this.ui.getElement(), loadingIndicator.getLoadingArea());
+                        loadingIndicator.hide(this.progress);
+                    }
+                });
+
+                // independent of the UI, which may be detached already
+                TracingHelper.endSpan(this.operationSpan);
+                postOperationFinish(this.succeeded);
+            }
+        }
+    }
+
+    /**
+     * Prepare the UI update for the loaded data in the current background thread, so only attaching it needs the session lock. Checks for the typical
+     * mistakes: the preparation must start without the session lock, must not leave it locked, and may only return detached components. Accessing the UI
+     * in between, e.g. locking and unlocking the session within the preparation, isn't detected.
+     * 
+     * @param ui
+     *            the UI the operation was started from
+     * @param prepareUiTask
+     *            the task building the detached components
+     * @param loadedData
+     *            the loaded data
+     * @return the prepared components or view models
+     * @throws RestServiceException
+     *             if the data can't be prepared
+     * @throws IllegalStateException
+     *             if the session was locked before or after the preparation, or it returned attached components
+     */
+    @Nullable
+    protected static <R, P> P prepareDetached(@NonNull final UI ui, @NonNull final PrepareUiInterface<R, P> prepareUiTask, @Nullable final R loadedData)
+            throws RestServiceException {
+        if (null != UI.getCurrent() || ui.getSession().hasLock()) {
+            throw new IllegalStateException("UI preparation must run in a background thread, without the session lock.");
+        }
+
+        final var prepareSpan = TracingHelper.startSpan(SPAN_UI_PREPARE, TracingHelper.getCurrentSpan());
+        final P prepared;
+        try (final var scope = TracingHelper.activate(prepareSpan)) {
+            prepared = prepareUiTask.prepareUi(loadedData);
+        } finally {
+            TracingHelper.endSpan(prepareSpan);
+        }
+
+        // the preparation must neither keep the session locked nor return attached components
+        if (ui.getSession().hasLock()) {
+            throw new IllegalStateException("UI preparation must not leave the session locked.");
+        }
+        final Collection<?> preparedItems = prepared instanceof Collection ? (Collection<?>) prepared : Collections.singleton(prepared);
+        for (final var preparedItem : preparedItems) {
+            if (preparedItem instanceof Component && ((Component) preparedItem).isAttached()) {
+                throw new IllegalStateException("UI preparation must only build detached components: " + preparedItem.getClass().getSimpleName());
+            }
+        }
+        return prepared;
+    }
+
+    /**
+     * Get the running operations per latest-wins slot of the UI. Must be called with the UI being locked.
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    private static Map<Object, Runnable> getLatestSlots(@NonNull final UI ui) {
+        var latestSlots = (Map<Object, Runnable>) ComponentUtil.getData(ui, DATA_LATEST_SLOTS);
+        if (null == latestSlots) {
+            latestSlots = new HashMap<>();
+            ComponentUtil.setData(ui, DATA_LATEST_SLOTS, latestSlots);
+        }
+        return latestSlots;
+    }
+
+    /**
+     * Subscribe to the given publisher and collect its items. The subscription is cancelled when the returned future is cancelled.
+     * 
+     * @param <T>
+     *            the item type
+     * @param <R>
+     *            the result type
+     * @param publisher
+     *            the publisher to subscribe to
+     * @param finisher
+     *            creates the result from the collected items
+     * @return the future completing with the result once the publisher completed, or exceptionally with its error
+     */
+    @NonNull
+    protected static <T, R> CompletableFuture<R> subscribe(@NonNull final Flow.Publisher<T> publisher, @NonNull final Function<List<T>, R> finisher) {
+        final var subscriber = new CollectingSubscriber<T, R>(finisher);
+        publisher.subscribe(subscriber);
+        return subscriber;
+    }
+
+    /**
+     * Subscriber collecting all items of a publisher, completing once the publisher completed.
+     * 
+     * @author bcersows
+     */
+    private static final class CollectingSubscriber<T, R> extends CompletableFuture<R> implements Flow.Subscriber<T> {
+        /** Creates the result from the collected items. **/
+        @NonNull
+        private final Function<List<T>, R> finisher;
+        /** The collected items. **/
+        @NonNull
+        private final List<T> items = new ArrayList<>();
+        /** The subscription, once subscribed. **/
+        @Nullable
+        private volatile Flow.Subscription subscription;
+
+        /** Create an instance. **/
+        private CollectingSubscriber(@NonNull final Function<List<T>, R> finisher) {
+            this.finisher = finisher;
+        }
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription) {
+            if (null != this.subscription || isDone()) {
+                // only subscribe once, and not at all if cancelled already
+                subscription.cancel();
+                return;
+            }
+            this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(final T item) {
+            this.items.add(item);
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            try {
+                complete(this.finisher.apply(this.items));
+            } catch (final RuntimeException e) {
+                completeExceptionally(e);
+            }
+        }
+
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning) {
+            final var currentSubscription = this.subscription;
+            if (null != currentSubscription) {
+                currentSubscription.cancel();
+            }
+            return super.cancel(mayInterruptIfRunning);
         }
     }
 
@@ -296,4 +1048,21 @@ public abstract class BackgroundOperationManager {
         }
 
     }
+
+    /**
+     * Exception when the principal started too many background operations in a short time.
+     * 
+     * @author bcersows
+     */
+    @Data
+    @EqualsAndHashCode(callSuper = true)
+    @ToString(callSuper = true)
+    public static class RateLimitExceededException extends RestServiceException {
+        private static final long serialVersionUID = 1L;
+
+        /** Create an instance. **/
+        public RateLimitExceededException() {
+            super("Rate limit for background operations exceeded.", "Too many requests, please try again in a moment.");
+        }
+    }
 }
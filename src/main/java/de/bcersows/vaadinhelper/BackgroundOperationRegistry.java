@@ -0,0 +1,243 @@
+package de.bcersows.vaadinhelper;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.context.SmartLifecycle;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import com.vaadin.flow.shared.Registration;
+
+import de.bcersows.vaadinhelper.BackgroundOperationManager.OperationType;
+import de.bcersows.vaadinhelper.BackgroundOperationManager.RestServiceException;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Registry of all running background operations. Allows to drain them gracefully when the application shuts down: new operations are rejected, running
+ * updates may finish until the drain timeout passes, and loads are cancelled right away.<br/>
+ * To hook it into the Spring lifecycle, expose the shared instance as a bean, e.g.
+ * {@code @Bean public BackgroundOperationRegistry backgroundOperationRegistry() { return BackgroundOperationRegistry.getInstance(); }}.
+ *
+ * @author bcersows
+ */
+@Slf4j
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class BackgroundOperationRegistry implements SmartLifecycle {
+    /** The shared instance used by all background operations. **/
+    private static final BackgroundOperationRegistry INSTANCE = new BackgroundOperationRegistry();
+
+    /** The running operations. **/
+    @NonNull
+    private final Set<RegisteredOperation> runningOperations = ConcurrentHashMap.newKeySet();
+
+    /** The time to wait for running updates on shutdown. **/
+    @Getter
+    @Setter
+    @NonNull
+    private Duration drainTimeout = Duration.ofSeconds(30);
+
+    /** If new operations are accepted. **/
+    private volatile boolean accepting = true;
+    /** If the lifecycle was started. **/
+    private volatile boolean running;
+
+    /** The report of the last drain, if any. **/
+    @Getter
+    @Nullable
+    private volatile DrainReport lastDrainReport;
+
+    /** Get the shared instance. **/
+    @NonNull
+    public static BackgroundOperationRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Register a running operation.
+     *
+     * @param operationType
+     *            the type of the operation
+     * @param description
+     *            the description for the drain report, e.g. the operation class
+     * @param canceller
+     *            cancels the operation, e.g. by interrupting its thread
+     * @return the registration to remove once the operation finished; {@code null} if the application is shutting down and the operation may not start
+     */
+    @Nullable
+    public Registration register(@NonNull final OperationType operationType, @NonNull final String description, @NonNull final Runnable canceller) {
+        if (!this.accepting) {
+            return null;
+        }
+
+        final var registeredOperation = new RegisteredOperation(operationType, description, Instant.now(), canceller, new CompletableFuture<>());
+        this.runningOperations.add(registeredOperation);
+
+        // check again, in case a drain started in-between
+        if (!this.accepting) {
+            this.runningOperations.remove(registeredOperation);
+            return null;
+        }
+        return Registration.once(() -> {
+            this.runningOperations.remove(registeredOperation);
+            registeredOperation.completion.complete(null);
+        });
+    }
+
+    /** If new operations are accepted. **/
+    public boolean isAccepting() {
+        return this.accepting;
+    }
+
+    /** Get the amount of currently running operations. **/
+    public int getRunningOperations() {
+        return this.runningOperations.size();
+    }
+
+    /**
+     * Stop accepting operations, cancel running loads and wait for the running updates until the drain timeout passes. Updates still running afterwards will
+     * be cancelled as well.
+     *
+     * @return the report listing the cancelled operations
+     */
+    @NonNull
+    public DrainReport drain() {
+        this.accepting = false;
+        final var start = Instant.now();
+        final var deadline = start.plus(this.drainTimeout);
+        final List<RegisteredOperation> abandonedOperations = new ArrayList<>();
+
+        // cancel loads right away, they can simply be redone
+        cancelOperations(OperationType.LOAD, abandonedOperations);
+
+        // wait for the updates, to not lose user writes
+        for (final var registeredOperation : this.runningOperations) {
+            final var remaining = Duration.between(Instant.now(), deadline);
+            if (registeredOperation.operationType == OperationType.UPDATE && !remaining.isNegative()) {
+                try {
+                    registeredOperation.completion.get(Math.max(1, remaining.toMillis()), TimeUnit.MILLISECONDS);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (final ExecutionException | TimeoutException e) {
+                    // will be cancelled below
+                }
+            }
+        }
+
+        // cancel anything that's still running
+        cancelOperations(null, abandonedOperations);
+
+        final var drainReport = new DrainReport(Duration.between(start, Instant.now()), abandonedOperations);
+        if (abandonedOperations.isEmpty()) {
+            log.info("Drained background operations in {}.", drainReport.drainDuration);
+        } else {
+            log.warn("Drained background operations in {}, abandoned {}: {}", drainReport.drainDuration, abandonedOperations.size(), abandonedOperations);
+        }
+        this.lastDrainReport = drainReport;
+        return drainReport;
+    }
+
+    /** Cancel all running operations of the given type (or all, if {@code null}) and collect them. **/
+    private void cancelOperations(@Nullable final OperationType operationType, @NonNull final List<RegisteredOperation> abandonedOperations) {
+        for (final var registeredOperation : this.runningOperations) {
+            if ((null == operationType || registeredOperation.operationType == operationType) && this.runningOperations.remove(registeredOperation)) {
+                registeredOperation.canceller.run();
+                abandonedOperations.add(registeredOperation);
+            }
+        }
+    }
+
+    // lifecycle
+    @Override
+    public void start() {
+        this.accepting = true;
+        this.running = true;
+    }
+
+    @Override
+    public void stop() {
+        drain();
+        this.running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return this.running;
+    }
+
+    @Override
+    public int getPhase() {
+        // stop as early as possible, while the backends are still available
+        return Integer.MAX_VALUE;
+    }
+
+    /** A single registered operation. Identity-based, as every registration is unique. **/
+    @Getter
+    @ToString(of = { "operationType", "description", "startTime" })
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static class RegisteredOperation {
+        /** The operation type. **/
+        @NonNull
+        private final OperationType operationType;
+        /** The description, e.g. the operation class. **/
+        @NonNull
+        private final String description;
+        /** The start of the operation. **/
+        @NonNull
+        private final Instant startTime;
+        /** Cancels the operation. **/
+        @Getter(AccessLevel.NONE)
+        @NonNull
+        private final Runnable canceller;
+        /** Completed when the operation finished. **/
+        @Getter(AccessLevel.NONE)
+        @NonNull
+        private final CompletableFuture<Void> completion;
+    }
+
+    /** The result of a drain. **/
+    @Data
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static class DrainReport {
+        /** How long the drain took. **/
+        @NonNull
+        private final Duration drainDuration;
+        /** The operations that were cancelled. **/
+        @NonNull
+        private final List<RegisteredOperation> abandonedOperations;
+    }
+
+    /**
+     * Exception when an operation is rejected as the application is shutting down.
+     *
+     * @author bcersows
+     */
+    @Data
+    @EqualsAndHashCode(callSuper = true)
+    @ToString(callSuper = true)
+    public static class ShutdownInProgressException extends RestServiceException {
+        private static final long serialVersionUID = 1L;
+
+        /** Create an instance. **/
+        public ShutdownInProgressException() {
+            super("Background operation rejected due to shutdown.", "The application is restarting, please try again in a moment.");
+        }
+    }
+}
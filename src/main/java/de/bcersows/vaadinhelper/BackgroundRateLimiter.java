@@ -0,0 +1,112 @@
+package de.bcersows.vaadinhelper;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.springframework.lang.NonNull;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A token-bucket rate limiter keeping one bucket per principal (e.g. the authenticated user name).<br/>
+ * The hot path is lock-free: every bucket is a single {@link AtomicLong} holding the "theoretical arrival time" of the next request (GCRA), updated via
+ * CAS. A bucket whose arrival time lies in the past is full again, so it carries no information and can be dropped; this keeps the memory bounded by the
+ * amount of currently active principals.
+ *
+ * @author bcersows
+ */
+@Slf4j
+public class BackgroundRateLimiter {
+    /** The default amount of tracked principals before idle buckets are swept. **/
+    private static final int DEFAULT_SWEEP_THRESHOLD = 10_000;
+
+    /** The bucket capacity, i.e. the allowed burst. **/
+    @Getter
+    private final int capacity;
+    /** The time in nanoseconds it takes to refill a single token. **/
+    private final long refillIntervalNanos;
+    /** The amount of buckets that triggers a sweep of idle ones. **/
+    private final int sweepThreshold;
+    /** The clock in nanoseconds. **/
+    @NonNull
+    private final LongSupplier nanoClock;
+
+    /** The buckets per principal, storing the theoretical arrival time. **/
+    @NonNull
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    /** The time of the last sweep, to not sweep over and over again. **/
+    @NonNull
+    private final AtomicLong lastSweep;
+
+    /**
+     * Create an instance.
+     *
+     * @param capacity
+     *            the amount of operations that can be started at once (the burst)
+     * @param refillPerSecond
+     *            the amount of tokens refilled per second (the sustained rate)
+     */
+    public BackgroundRateLimiter(final int capacity, final double refillPerSecond) {
+        this(capacity, refillPerSecond, DEFAULT_SWEEP_THRESHOLD, System::nanoTime);
+    }
+
+    /** Create an instance with custom sweeping and clock. **/
+    protected BackgroundRateLimiter(final int capacity, final double refillPerSecond, final int sweepThreshold, @NonNull final LongSupplier nanoClock) {
+        if (capacity < 1 || refillPerSecond <= 0) {
+            throw new IllegalArgumentException("Capacity and refill rate must be positive.");
+        }
+
+        this.capacity = capacity;
+        this.refillIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / refillPerSecond);
+        this.sweepThreshold = sweepThreshold;
+        this.nanoClock = nanoClock;
+        this.lastSweep = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    /**
+     * Try to take a token for the given principal.
+     *
+     * @param principal
+     *            the principal to take a token for
+     * @return if a token was available and the operation may start
+     */
+    public boolean tryAcquire(@NonNull final String principal) {
+        final var now = this.nanoClock.getAsLong();
+        final var burstWindow = this.refillIntervalNanos * this.capacity;
+
+        final var bucket = this.buckets.computeIfAbsent(principal, key -> new AtomicLong(now));
+        while (true) {
+            final var arrivalTime = bucket.get();
+            // an arrival time in the past means the bucket is full
+            final var nextArrivalTime = Math.max(arrivalTime, now) + this.refillIntervalNanos;
+            if (nextArrivalTime - now > burstWindow) {
+                // no token left
+                return false;
+            }
+            if (bucket.compareAndSet(arrivalTime, nextArrivalTime)) {
+                break;
+            }
+        }
+
+        sweepIfRequired(now);
+        return true;
+    }
+
+    /** Get the amount of currently tracked principals. **/
+    public int getTrackedPrincipals() {
+        return this.buckets.size();
+    }
+
+    /** Drop all buckets that are full again, if there are too many. Only a single thread sweeps per refill interval. **/
+    private void sweepIfRequired(final long now) {
+        final var lastSweepTime = this.lastSweep.get();
+        if (this.buckets.size() > this.sweepThreshold && now - lastSweepTime > this.refillIntervalNanos && this.lastSweep.compareAndSet(lastSweepTime, now)) {
+            this.buckets.values().removeIf(bucket -> bucket.get() <= now);
+            log.debug("Swept idle rate limit buckets, {} remaining.", this.buckets.size());
+        }
+    }
+}
@@ -0,0 +1,458 @@
+package de.bcersows.vaadinhelper;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.ComponentUtil;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.di.Instantiator;
+import com.vaadin.flow.router.BeforeEnterEvent;
+import com.vaadin.flow.router.BeforeEnterObserver;
+import com.vaadin.flow.router.RouteParameters;
+import com.vaadin.flow.server.VaadinSession;
+import com.vaadin.flow.shared.Registration;
+
+import de.bcersows.vaadinhelper.BackgroundCacheInvalidation.CachedEntry;
+import de.bcersows.vaadinhelper.BackgroundLoadingHelper.BackgroundLoadingException;
+import de.bcersows.vaadinhelper.BackgroundLoadingHelper.BackgroundLoadingOperation;
+import de.bcersows.vaadinhelper.BackgroundLoadingHelper.DataLoadingInterface;
+import de.bcersows.vaadinhelper.BackgroundOperationManager.RateLimitExceededException;
+import de.bcersows.vaadinhelper.BackgroundOperationManager.RestServiceException;
+import de.bcersows.vaadinhelper.BackgroundOperationManager.UpdateUiInterface;
+import de.bcersows.vaadinhelper.BackgroundOperationManager.UpdateUiOnErrorInterface;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Route-level data preloading: the data of a view annotated with {@link PreloadData} is loaded as soon as the navigation to it begins, in parallel to
+ * constructing and attaching the view, instead of only after its constructor ran.<br/>
+ * {@link #install(UI)} the preloading once per UI, e.g. in a {@code UIInitListener}; the view then picks up the preloaded data in its
+ * {@link BeforeEnterObserver#beforeEnter(BeforeEnterEvent)} using {@link #startPreloadedBackgroundLoading(BeforeEnterEvent, UpdateUiInterface)}.
+ *
+ * <pre>
+ * &#64;Route("person/:id")
+ * &#64;PreloadData(PersonPreloader.class)
+ * public class PersonView extends Div implements BeforeEnterObserver {
+ *     public void beforeEnter(final BeforeEnterEvent event) {
+ *         BackgroundRoutePreloader.&lt;Person&gt; startPreloadedBackgroundLoading(event, this::showPerson);
+ *     }
+ * }
+ * </pre>
+ *
+ * Links can {@link #prefetchOnIntent(Component, Class, RouteParameters) prefetch} the data of their target on hover or focus into a short-lived cache of
+ * the session, which the navigation then uses instead of loading again.
+ *
+ * @author bcersows
+ */
+@Slf4j
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class BackgroundRoutePreloader {
+    /** The latest-wins slot of the preloads; a new navigation cancels the preload of the preceding one. **/
+    private static final Object PRELOAD_SLOT = PendingPreload.class;
+    /** The session attribute of the prefetched data. **/
+    private static final String ATTRIBUTE_PREFETCHES = BackgroundRoutePreloader.class.getName() + ".prefetches";
+
+    /** How long prefetched data may be used by a navigation. **/
+    @NonNull
+    private static volatile Duration prefetchRetention = Duration.ofSeconds(30);
+
+    /**
+     * Set how long prefetched data may be used by a navigation after the prefetch started. Default is 30s.
+     */
+    public static void setPrefetchRetention(@NonNull final Duration prefetchRetention) {
+        BackgroundRoutePreloader.prefetchRetention = prefetchRetention;
+    }
+
+    /**
+     * Install the preloading for the given UI. Must be called before the first navigation, e.g. in a {@code UIInitListener}.
+     *
+     * @param ui
+     *            the UI to preload the data of its navigation targets for
+     * @return the registration of the preloading
+     */
+    @NonNull
+    public static Registration install(@NonNull final UI ui) {
+        // listeners of the UI run before the navigation target is created
+        return ui.addBeforeEnterListener(BackgroundRoutePreloader::preload);
+    }
+
+    /**
+     * Start the background loading of the view's data, using the data preloaded for the current navigation if available; otherwise the preloader of the
+     * view is run right away. Must be called in the {@link BeforeEnterObserver#beforeEnter(BeforeEnterEvent)} of a view annotated with {@link PreloadData}.
+     * Will show a custom loading indicator.
+     *
+     * @param <R>
+     *            the data type
+     * @param event
+     *            the before enter event of the view
+     * @param updateUiTask
+     *            task/consumer to display the UI with the loaded data; runs after the view was attached
+     */
+    public static <R> void startPreloadedBackgroundLoading(@NonNull final BeforeEnterEvent event, @NonNull final UpdateUiInterface<R> updateUiTask) {
+        startPreloadedBackgroundLoading(event, updateUiTask, null);
+    }
+
+    /**
+     * Start the background loading of the view's data, using the data preloaded for the current navigation if available; otherwise the preloader of the
+     * view is run right away. Must be called in the {@link BeforeEnterObserver#beforeEnter(BeforeEnterEvent)} of a view annotated with {@link PreloadData}.
+     * Will show a custom loading indicator.
+     *
+     * @param <R>
+     *            the data type
+     * @param event
+     *            the before enter event of the view
+     * @param updateUiTask
+     *            task/consumer to display the UI with the loaded data; runs after the view was attached
+     * @param updateUiOnErrorTask
+     *            if provided, will be called in the error case instead of showing a notification. Allows for modification on the UI.
+     */
+    @SuppressWarnings("unchecked")
+    public static <R> void startPreloadedBackgroundLoading(@NonNull final BeforeEnterEvent event, @NonNull final UpdateUiInterface<R> updateUiTask,
+            @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask) {
+        final var ui = event.getUI();
+        final var routeParameters = event.getRouteParameters();
+        final var routeKey = new RouteKey(event.getNavigationTarget(), routeParameters);
+        final var pendingPreload = ComponentUtil.getData(ui, PendingPreload.class);
+
+        final CompletableFuture<Object> preloadedData;
+        if (null != pendingPreload && pendingPreload.routeKey.equals(routeKey)) {
+            ComponentUtil.setData(ui, PendingPreload.class, null);
+            preloadedData = pendingPreload.result;
+        } else {
+            preloadedData = takePrefetch(ui.getSession(), routeKey);
+        }
+
+        if (null != preloadedData) {
+            // consume the preload; a copy, so cancelling the view's operation doesn't cancel the preload itself
+            BackgroundLoadingHelper.startAsyncBackgroundLoading(() -> (CompletionStage<R>) preloadedData.copy(), updateUiTask, null, updateUiOnErrorTask);
+        } else {
+            // not installed or navigated to differently, so load now
+            log.debug("No preloaded data for {}, loading now.", event.getNavigationTarget().getSimpleName());
+            final var preloader = (RoutePreloader<R>) createPreloader(ui, event.getNavigationTarget());
+            BackgroundLoadingHelper.startBackgroundLoading(() -> preloader.preload(routeParameters), updateUiTask, updateUiOnErrorTask);
+        }
+    }
+
+    /** Start the preload for the navigation target of the event, if annotated. **/
+    private static void preload(@NonNull final BeforeEnterEvent event) {
+        final var ui = event.getUI();
+        final var navigationTarget = event.getNavigationTarget();
+        if (!navigationTarget.isAnnotationPresent(PreloadData.class)) {
+            ComponentUtil.setData(ui, PendingPreload.class, null);
+            return;
+        }
+
+        final var routeParameters = event.getRouteParameters();
+        final var routeKey = new RouteKey(navigationTarget, routeParameters);
+        final var prefetchedData = takePrefetch(ui.getSession(), routeKey);
+        if (null != prefetchedData) {
+            log.debug("Using prefetched data of {}.", navigationTarget.getSimpleName());
+            ComponentUtil.setData(ui, PendingPreload.class, new PendingPreload(routeKey, prefetchedData));
+            return;
+        }
+
+        final var preloader = createPreloader(ui, navigationTarget);
+        final var pendingPreload = new PendingPreload(routeKey, new CompletableFuture<>());
+        ComponentUtil.setData(ui, PendingPreload.class, pendingPreload);
+
+        log.debug("Preloading data of {}.", navigationTarget.getSimpleName());
+        // the errors are handled by the view's loading
+        new PreloadOperation(() -> preloader.preload(routeParameters), pendingPreload.result, PRELOAD_SLOT, false).startBackgroundOperation();
+    }
+
+    /**
+     * Prefetch the data of the navigation target when the user shows the intent to navigate there, i.e. hovers or focuses the trigger. Targets not
+     * annotated with {@link PreloadData} are ignored.
+     *
+     * @param trigger
+     *            the link or button navigating to the target
+     * @param navigationTarget
+     *            the target navigated to
+     * @param routeParameters
+     *            the route parameters of the navigation
+     * @return the registration of the intent listeners
+     */
+    @NonNull
+    public static Registration prefetchOnIntent(@NonNull final Component trigger, @NonNull final Class<? extends Component> navigationTarget,
+            @NonNull final RouteParameters routeParameters) {
+        if (!navigationTarget.isAnnotationPresent(PreloadData.class)) {
+            return () -> {
+                // nothing registered
+            };
+        }
+
+        final var element = trigger.getElement();
+        final var hoverRegistration = element.addEventListener("mouseenter", event -> prefetch(navigationTarget, routeParameters));
+        final var focusRegistration = element.addEventListener("focusin", event -> prefetch(navigationTarget, routeParameters));
+        return () -> {
+            hoverRegistration.remove();
+            focusRegistration.remove();
+        };
+    }
+
+    /**
+     * Prefetch the data of the navigation target into the cache of the session, unless prefetched recently already. Doesn't show a loading indicator, and
+     * failures are only reported once a view uses the data. Counts against the rate limit of the user; skipped if it's exhausted.
+     *
+     * @param navigationTarget
+     *            the target to prefetch the data for; must be annotated with {@link PreloadData}
+     * @param routeParameters
+     *            the route parameters of the navigation
+     */
+    public static void prefetch(@NonNull final Class<? extends Component> navigationTarget, @NonNull final RouteParameters routeParameters) {
+        final var ui = UI.getCurrent();
+        if (null == ui) {
+            throw new IllegalStateException("Prefetch must be started from a valid UI location.");
+        }
+
+        final var prefetches = getPrefetches(ui.getSession());
+        final var retention = prefetchRetention;
+        prefetches.values().removeIf(prefetch -> !prefetch.isUsable(retention));
+
+        final var routeKey = new RouteKey(navigationTarget, routeParameters);
+        if (prefetches.containsKey(routeKey)) {
+            return;
+        }
+
+        final var preloader = createPreloader(ui, navigationTarget);
+        final var prefetch = new Prefetch(prefetches, routeKey);
+        prefetches.put(routeKey, prefetch);
+        BackgroundCacheInvalidation.register(ui.getSession(), preloader.getInvalidationTags(routeParameters), prefetch);
+
+        log.debug("Prefetching data of {}.", navigationTarget.getSimpleName());
+        new PreloadOperation(() -> preloader.preload(routeParameters), prefetch.result, null, true).startBackgroundOperation();
+    }
+
+    /** Take the usable prefetched data of the route out of the session's cache, if any. Must be called with the session being locked. **/
+    @Nullable
+    private static CompletableFuture<Object> takePrefetch(@NonNull final VaadinSession session, @NonNull final RouteKey routeKey) {
+        final var prefetch = getPrefetches(session).remove(routeKey);
+        return null != prefetch && prefetch.isUsable(prefetchRetention) ? prefetch.result : null;
+    }
+
+    /**
+     * Get the prefetched data of the session. Must be called with the session being locked.
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    private static Map<RouteKey, Prefetch> getPrefetches(@NonNull final VaadinSession session) {
+        var prefetches = (Map<RouteKey, Prefetch>) session.getAttribute(ATTRIBUTE_PREFETCHES);
+        if (null == prefetches) {
+            prefetches = new HashMap<>();
+            session.setAttribute(ATTRIBUTE_PREFETCHES, prefetches);
+        }
+        return prefetches;
+    }
+
+    /** Create the preloader configured for the navigation target. **/
+    @NonNull
+    private static RoutePreloader<?> createPreloader(@NonNull final UI ui, @NonNull final Class<?> navigationTarget) {
+        final var preloadData = navigationTarget.getAnnotation(PreloadData.class);
+        if (null == preloadData) {
+            throw new IllegalStateException("Navigation target must be annotated with @PreloadData: " + navigationTarget.getSimpleName());
+        }
+        return Instantiator.get(ui).getOrCreate(preloadData.value());
+    }
+
+    /**
+     * Mark a view to have its data preloaded as soon as the navigation to it begins.
+     *
+     * @author bcersows
+     */
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.TYPE)
+    public static @interface PreloadData {
+        /** The preloader of the view's data; created by the {@link Instantiator}, so can be a bean. **/
+        Class<? extends RoutePreloader<?>> value();
+    }
+
+    /** Interface for preloading the data of a view. **/
+    @FunctionalInterface
+    public static interface RoutePreloader<R> {
+        /**
+         * Load the data of the view. Runs in parallel to the view construction, so must not access the view in any way.
+         *
+         * @param routeParameters
+         *            the route parameters of the navigation
+         * @return the loaded data, can be {@code null}
+         * @throws BackgroundLoadingException
+         *             if an exception happened while loading; the contained user message will be displayed to the user
+         * @throws RestServiceException
+         *             if an exception happened during the rest call.
+         **/
+        @Nullable
+        R preload(@NonNull RouteParameters routeParameters) throws BackgroundLoadingException, RestServiceException;
+
+        /**
+         * Get the invalidation tags of the prefetched data, e.g. {@code "customer:42"}; updates invalidating one of them evict it or write through to it,
+         * see {@link BackgroundCacheInvalidation}. None as default.
+         *
+         * @param routeParameters
+         *            the route parameters of the navigation
+         * @return the tags of the data
+         */
+        @NonNull
+        default Set<String> getInvalidationTags(@NonNull final RouteParameters routeParameters) {
+            return Set.of();
+        }
+    }
+
+    /**
+     * A navigation: its target and route parameters.
+     *
+     * @author bcersows
+     */
+    @Data
+    private static final class RouteKey {
+        /** The navigation target. **/
+        @NonNull
+        private final Class<?> navigationTarget;
+        /** The route parameters of the navigation. **/
+        @NonNull
+        private final RouteParameters routeParameters;
+    }
+
+    /**
+     * The preload of the current navigation of a UI.
+     *
+     * @author bcersows
+     */
+    private static final class PendingPreload {
+        /** The navigation. **/
+        @NonNull
+        private final RouteKey routeKey;
+        /** The preloaded data, once loaded. **/
+        @NonNull
+        private final CompletableFuture<Object> result;
+
+        /** Create an instance. **/
+        private PendingPreload(@NonNull final RouteKey routeKey, @NonNull final CompletableFuture<Object> result) {
+            this.routeKey = routeKey;
+            this.result = result;
+        }
+    }
+
+    /**
+     * Data prefetched into the session's cache.
+     *
+     * @author bcersows
+     */
+    private static final class Prefetch implements CachedEntry {
+        /** The prefetched data of the session. **/
+        @NonNull
+        private final Map<RouteKey, Prefetch> prefetches;
+        /** The navigation prefetched for. **/
+        @NonNull
+        private final RouteKey routeKey;
+        /** The prefetched data, once loaded. **/
+        @NonNull
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+        /** The time the prefetch started, in nanoseconds. **/
+        private final long startedNanos = System.nanoTime();
+
+        /** Create an instance. **/
+        private Prefetch(@NonNull final Map<RouteKey, Prefetch> prefetches, @NonNull final RouteKey routeKey) {
+            this.prefetches = prefetches;
+            this.routeKey = routeKey;
+        }
+
+        /** If a navigation may use the prefetch: it's running or loaded, and started within the retention. **/
+        private boolean isUsable(@NonNull final Duration retention) {
+            if (this.result.isCompletedExceptionally()) {
+                // failed or cancelled, so load again
+                return false;
+            }
+            // also a prefetch still running after the retention, so a hanging one isn't waited for
+            return System.nanoTime() - this.startedNanos < retention.toNanos();
+        }
+
+        @Override
+        public boolean isCached() {
+            return this == this.prefetches.get(this.routeKey) && isUsable(prefetchRetention);
+        }
+
+        @Override
+        public void evict() {
+            this.prefetches.remove(this.routeKey, this);
+        }
+
+        @Override
+        public boolean writeThrough(final Object writtenEntity) {
+            // a running prefetch would overwrite the entity again
+            if (!this.result.isDone() || this.result.isCompletedExceptionally()
+                    || !BackgroundCacheInvalidation.canWriteThrough(this.result.getNow(null), writtenEntity)) {
+                return false;
+            }
+
+            this.result.obtrudeValue(writtenEntity);
+            return true;
+        }
+    }
+
+    /**
+     * A preload or prefetch operation, passing its result or failure on to the preloaded data. The data is completed however the operation ends, so a
+     * view waiting for it never hangs.
+     *
+     * @author bcersows
+     */
+    private static class PreloadOperation extends BackgroundLoadingOperation<Object> {
+        /** The preloaded data. **/
+        @NonNull
+        private final CompletableFuture<Object> result;
+        /** If prefetched speculatively, so not showing the loading indicator and skipped if rate limited. **/
+        private final boolean speculative;
+
+        /** Create an instance. **/
+        private PreloadOperation(@NonNull final DataLoadingInterface<Object> preloadTask, @NonNull final CompletableFuture<Object> result,
+                @Nullable final Object latestSlot, final boolean speculative) {
+            // completed in the background thread, as the UI may be detached or the operation superseded before updating it
+            super(() -> {
+                try {
+                    final var preloadedData = preloadTask.loadData();
+                    result.complete(preloadedData);
+                    return preloadedData;
+                } catch (final Exception e) {
+                    result.completeExceptionally(e);
+                    throw e;
+                }
+            }, preloadedData -> {
+                // completed already
+            }, null, restServiceException -> {
+                if (speculative && restServiceException instanceof RateLimitExceededException) {
+                    // skipped rather than failed; cancelled once finished, so a navigation just loads itself
+                    log.debug("Rate limit exceeded, skipping the prefetch.");
+                    return;
+                }
+                result.completeExceptionally(restServiceException);
+            }, latestSlot);
+
+            this.result = result;
+            this.speculative = speculative;
+        }
+
+        @Override
+        protected boolean isShowingIndicator() {
+            return !this.speculative;
+        }
+
+        @Override
+        protected void postOperationFinish(final boolean succeeded) {
+            // finished without a result, e.g. cancelled while queued or on shutdown
+            this.result.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package de.bcersows.vaadinhelper;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextImpl;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
+import com.vaadin.flow.shared.Registration;
+
+import de.bcersows.vaadinhelper.BackgroundOperationManager.UpdateUiInterface;
+import de.bcersows.vaadinhelper.BackgroundOperationManager.UpdateUiOnErrorInterface;
+import de.bcersows.vaadinhelper.BackgroundUpdateHelper.DataUpdateInterface;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A debounced, coalescing save queue of a UI, e.g. for inline editing in a grid. Repeated updates of the same key collapse to the latest value, and all
+ * pending keys are saved together in a single background update once no update was enqueued for the debounce time (or the max delay passed since the first
+ * pending one).<br/>
+ * Pending updates are flushed right away when the UI is detached, also without a request, e.g. on session expiry; then as the user who enqueued them.
+ * All methods must be called with the UI being locked.
+ *
+ * <pre>
+ * final var saveQueue = new BackgroundSaveQueue&lt;Long, Person, Void&gt;(Duration.ofMillis(500), persons -&gt; {
+ *     personService.saveAll(persons.values());
+ *     return null;
+ * }, result -&gt; NotificationHelper.showSuccess("Saved."));
+ * grid.getEditor().addSaveListener(event -&gt; saveQueue.enqueue(event.getItem().getId(), event.getItem()));
+ * </pre>
+ *
+ * @author bcersows
+ * @param <K>
+ *            the key type, e.g. the entity ID
+ * @param <V>
+ *            the value type
+ * @param <R>
+ *            the return data type of the batch update
+ */
+@Slf4j
+public class BackgroundSaveQueue<K, V, R> {
+    /** The max delay as multiple of the debounce time, if not given. **/
+    private static final int DEFAULT_MAX_DELAY_FACTOR = 10;
+
+    /** The UI the queue belongs to. **/
+    @NonNull
+    private final UI ui;
+    /** The time without new updates before saving. **/
+    @NonNull
+    private final Duration debounce;
+    /** The max time an update stays pending. **/
+    @NonNull
+    private final Duration maxDelay;
+    /** The task saving all pending updates at once. **/
+    @NonNull
+    private final DataUpdateInterface<Map<K, V>, R> batchUpdateTask;
+    /** The task to update the UI on success. **/
+    @NonNull
+    private final UpdateUiInterface<R> updateUiTask;
+    /** The task to update the UI on error. **/
+    @Nullable
+    private final UpdateUiOnErrorInterface updateUiOnErrorTask;
+
+    /** The pending updates, latest value per key, in the order of their first update. **/
+    @NonNull
+    private Map<K, V> pendingUpdates = new LinkedHashMap<>();
+    /** The time the first pending update was enqueued, in nanoseconds. **/
+    private long firstPendingNanos;
+    /** The scheduled flush, if any. **/
+    @Nullable
+    private ScheduledFuture<?> scheduledFlush;
+    /** The user who enqueued the latest update, to save as on detach. **/
+    @Nullable
+    private Authentication authentication;
+    /** The registration of the detach listener, while watching the UI. **/
+    @Nullable
+    private Registration detachRegistration;
+    /** If closed or flushed on detach, so no updates are accepted anymore. **/
+    private boolean closed;
+
+    /**
+     * Create an instance for the current UI. Pending updates are saved at the latest after ten times the debounce time.
+     *
+     * @param debounce
+     *            the time without new updates before saving
+     * @param batchUpdateTask
+     *            task/provider to save all pending updates at once<br/>
+     *            <strong>This task shall not access the UI elements in any way! In case of a problem, throw the appropriate exception!</strong>
+     * @param updateUiTask
+     *            task/consumer to update the UI after saving
+     */
+    public BackgroundSaveQueue(@NonNull final Duration debounce, @NonNull final DataUpdateInterface<Map<K, V>, R> batchUpdateTask,
+            @NonNull final UpdateUiInterface<R> updateUiTask) {
+        this(debounce, debounce.multipliedBy(DEFAULT_MAX_DELAY_FACTOR), batchUpdateTask, updateUiTask, null);
+    }
+
+    /**
+     * Create an instance for the current UI.
+     *
+     * @param debounce
+     *            the time without new updates before saving
+     * @param maxDelay
+     *            the max time an update stays pending while updates keep coming in
+     * @param batchUpdateTask
+     *            task/provider to save all pending updates at once<br/>
+     *            <strong>This task shall not access the UI elements in any way! In case of a problem, throw the appropriate exception!</strong>
+     * @param updateUiTask
+     *            task/consumer to update the UI after saving
+     * @param updateUiOnErrorTask
+     *            if provided, will be called in the error case instead of showing a notification. Allows for modification on the UI.
+     */
+    public BackgroundSaveQueue(@NonNull final Duration debounce, @NonNull final Duration maxDelay,
+            @NonNull final DataUpdateInterface<Map<K, V>, R> batchUpdateTask, @NonNull final UpdateUiInterface<R> updateUiTask,
+            @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask) {
+        final var currentUi = UI.getCurrent();
+        if (null == currentUi) {
+            throw new IllegalStateException("Save queue must be created from a valid UI location.");
+        }
+
+        this.ui = currentUi;
+        this.debounce = debounce;
+        this.maxDelay = maxDelay;
+        this.batchUpdateTask = batchUpdateTask;
+        this.updateUiTask = updateUiTask;
+        this.updateUiOnErrorTask = updateUiOnErrorTask;
+
+        // don't lose pending updates when the user leaves or the session expires
+        this.detachRegistration = this.ui.addDetachListener(event -> flushDetached());
+    }
+
+    /**
+     * Enqueue the update of the given key. Replaces a pending update of the same key, and delays saving by the debounce time.
+     *
+     * @throws IllegalStateException
+     *             if the queue was closed or its UI detached, as the update could not be saved on detach anymore
+     */
+    public void enqueue(@NonNull final K key, @Nullable final V value) {
+        if (this.closed) {
+            throw new IllegalStateException("Save queue must not be used after closing it.");
+        }
+
+        final var now = System.nanoTime();
+        if (this.pendingUpdates.isEmpty()) {
+            this.firstPendingNanos = now;
+        }
+        this.pendingUpdates.put(key, value);
+        this.authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        // reschedule, but never beyond the max delay of the first pending update
+        cancelScheduledFlush();
+        final var maxDelayLeft = this.maxDelay.toNanos() - (now - this.firstPendingNanos);
+        final var delay = Math.max(0, Math.min(this.debounce.toNanos(), maxDelayLeft));
+        this.scheduledFlush = BackgroundLoadingIndicator.SCHEDULER.schedule(this::scheduleFlush, delay, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Save all pending updates right away in a single background update.
+     */
+    public void flush() {
+        cancelScheduledFlush();
+        if (this.pendingUpdates.isEmpty()) {
+            return;
+        }
+
+        final var updates = this.pendingUpdates;
+        this.pendingUpdates = new LinkedHashMap<>();
+        log.debug("Saving {} coalesced updates.", updates.size());
+        BackgroundUpdateHelper.startBackgroundUpdate(updates, this.batchUpdateTask, this.updateUiTask, this.updateUiOnErrorTask);
+    }
+
+    /**
+     * Save all pending updates right away and stop watching the UI, e.g. once the editor using the queue is closed. No updates are accepted afterwards.
+     */
+    public void close() {
+        this.closed = true;
+        removeDetachListener();
+        flush();
+    }
+
+    /** Get the amount of pending keys. **/
+    public int getPendingUpdates() {
+        return this.pendingUpdates.size();
+    }
+
+    /** Flush from the scheduler thread. **/
+    private void scheduleFlush() {
+        try {
+            this.ui.access(this::flush);
+        } catch (final UIDetachedException e) {
+            log.debug("UI detached, pending updates were flushed on detach.");
+        }
+    }
+
+    /**
+     * Save all pending updates without the UI, as it's detached; there may be no request either, e.g. on session expiry. Runs as the user who enqueued
+     * them.
+     */
+    private void flushDetached() {
+        this.closed = true;
+        removeDetachListener();
+        cancelScheduledFlush();
+        if (this.pendingUpdates.isEmpty()) {
+            return;
+        }
+
+        final var updates = this.pendingUpdates;
+        this.pendingUpdates = new LinkedHashMap<>();
+        log.debug("UI detached, saving {} coalesced updates.", updates.size());
+
+        final var previousContext = SecurityContextHolder.getContext();
+        SecurityContextHolder.setContext(new SecurityContextImpl(this.authentication));
+        try {
+            BackgroundUpdateHelper.startDetachedBackgroundUpdate(updates, this.batchUpdateTask, null).whenComplete((savedData, throwable) -> {
+                if (null != throwable) {
+                    log.error("Could not save {} updates of the detached UI.", updates.size(), throwable);
+                }
+            });
+        } finally {
+            SecurityContextHolder.setContext(previousContext);
+        }
+    }
+
+    /** Stop watching the UI's detach. **/
+    private void removeDetachListener() {
+        if (null != this.detachRegistration) {
+            this.detachRegistration.remove();
+            this.detachRegistration = null;
+        }
+    }
+
+    /** Cancel the scheduled flush, if any. **/
+    private void cancelScheduledFlush() {
+        if (null != this.scheduledFlush) {
+            this.scheduledFlush.cancel(false);
+            this.scheduledFlush = null;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package de.bcersows.vaadinhelper;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
+import com.vaadin.flow.shared.Registration;
+
+import de.bcersows.vaadinhelper.BackgroundLoadingHelper.BackgroundLoadingException;
+import de.bcersows.vaadinhelper.BackgroundOperationManager.RestServiceException;
+import de.bcersows.vaadinhelper.BackgroundOperationManager.UpdateUiInterface;
+import de.bcersows.vaadinhelper.BackgroundOperationManager.UpdateUiOnErrorInterface;
+import de.bcersows.vaadinhelper.helpers.NotificationHelper;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A polling source shared by all UIs, e.g. for status dashboards: each key is polled by a single scheduled load, and its results are pushed to all
+ * subscribed UIs, so the backend load grows with the amount of keys instead of the amount of users. Create one instance per data source for the whole
+ * application, e.g. as a singleton bean.<br/>
+ * The subscribers of a key are reference-counted: polling starts with the first one and stops once the last one unsubscribed or its UI was detached. A
+ * new subscriber gets the latest result right away; afterwards, results are only pushed if they changed. Requires server push to be enabled.
+ *
+ * <pre>
+ * final var statusPoller = new BackgroundSharedPoller&lt;String, Status&gt;(Duration.ofSeconds(5), statusService::getStatus);
+ * statusPoller.subscribe("cluster-1", this::showStatus);
+ * </pre>
+ *
+ * @author bcersows
+ * @param <K>
+ *            the key type, e.g. the polled endpoint
+ * @param <V>
+ *            the polled data type
+ */
+@Slf4j
+public class BackgroundSharedPoller<K, V> {
+    /** The delay between the end of a poll and the start of the next one. **/
+    @NonNull
+    private final Duration interval;
+    /** The task polling a key. **/
+    @NonNull
+    private final PollingInterface<K, V> pollingTask;
+
+    /** The polled keys, with their subscribers. Guarded by this poller. **/
+    @NonNull
+    private final Map<K, PolledKey> polledKeys = new HashMap<>();
+
+    /**
+     * Create an instance.
+     *
+     * @param interval
+     *            the delay between the end of a poll and the start of the next one
+     * @param pollingTask
+     *            task/provider to poll a key; runs in a background thread<br/>
+     *            <strong>This task shall not access the UI elements in any way! In case of a problem, throw the appropriate exception!</strong>
+     */
+    public BackgroundSharedPoller(@NonNull final Duration interval, @NonNull final PollingInterface<K, V> pollingTask) {
+        this.interval = interval;
+        this.pollingTask = pollingTask;
+    }
+
+    /**
+     * Subscribe the current UI to the results of the key, until the registration is removed or the UI is detached. Errors are shown as notification.
+     * Must be called with the UI being locked.
+     *
+     * @param key
+     *            the polled key
+     * @param updateUiTask
+     *            task/consumer to display the UI with the polled data
+     * @return the registration to unsubscribe
+     */
+    @NonNull
+    public Registration subscribe(@NonNull final K key, @NonNull final UpdateUiInterface<V> updateUiTask) {
+        return subscribe(key, updateUiTask, null);
+    }
+
+    /**
+     * Subscribe the current UI to the results of the key, until the registration is removed or the UI is detached. Must be called with the UI being
+     * locked.
+     *
+     * @param key
+     *            the polled key
+     * @param updateUiTask
+     *            task/consumer to display the UI with the polled data
+     * @param updateUiOnErrorTask
+     *            if provided, will be called in the error case instead of showing a notification. Allows for modification on the UI.
+     * @return the registration to unsubscribe
+     */
+    @NonNull
+    public Registration subscribe(@NonNull final K key, @NonNull final UpdateUiInterface<V> updateUiTask,
+            @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask) {
+        final var ui = UI.getCurrent();
+        if (null == ui) {
+            throw new IllegalStateException("Shared polling must be subscribed from a valid UI location.");
+        }
+
+        final var subscriber = new Subscriber(ui, updateUiTask, updateUiOnErrorTask);
+        final boolean polled;
+        final V latestValue;
+        synchronized (this) {
+            var polledKey = this.polledKeys.get(key);
+            if (null == polledKey) {
+                log.debug("Start polling {}.", key);
+                polledKey = new PolledKey(key);
+                this.polledKeys.put(key, polledKey);
+                polledKey.schedulePoll(0);
+            }
+            polledKey.subscribers.add(subscriber);
+            polled = polledKey.polled;
+            latestValue = polledKey.latestValue;
+        }
+
+        // don't wait for the next poll if there's a result already
+        if (polled) {
+            updateUiTask.updateUi(latestValue);
+        }
+
+        final var detachRegistration = ui.addDetachListener(event -> unsubscribe(key, subscriber));
+        return () -> {
+            detachRegistration.remove();
+            unsubscribe(key, subscriber);
+        };
+    }
+
+    /** Get the amount of subscribers of the key. **/
+    public synchronized int getSubscribers(@NonNull final K key) {
+        final var polledKey = this.polledKeys.get(key);
+        return null == polledKey ? 0 : polledKey.subscribers.size();
+    }
+
+    /** Remove the subscriber of the key; stops polling the key if it was the last one. **/
+    private synchronized void unsubscribe(@NonNull final K key, @NonNull final Subscriber subscriber) {
+        final var polledKey = this.polledKeys.get(key);
+        if (null == polledKey || !polledKey.subscribers.remove(subscriber)) {
+            return;
+        }
+        subscriber.unsubscribed = true;
+
+        if (polledKey.subscribers.isEmpty()) {
+            log.debug("Stop polling {}, no subscribers left.", key);
+            this.polledKeys.remove(key);
+            polledKey.stop();
+        }
+    }
+
+    /** A polled key, with its subscribers. Guarded by the poller. **/
+    private final class PolledKey {
+        /** The polled key. **/
+        @NonNull
+        private final K key;
+        /** The subscribers of the key. **/
+        @NonNull
+        private final List<Subscriber> subscribers = new ArrayList<>();
+
+        /** If the key was polled successfully at least once. **/
+        private boolean polled;
+        /** The latest polled value. **/
+        @Nullable
+        private V latestValue;
+        /** If polling was stopped. **/
+        private boolean stopped;
+        /** The scheduled next poll, if any. **/
+        @Nullable
+        private ScheduledFuture<?> scheduledPoll;
+        /** The thread of the running poll, if any. **/
+        @Nullable
+        private Thread pollingThread;
+
+        /** Create an instance. **/
+        private PolledKey(@NonNull final K key) {
+            this.key = key;
+        }
+
+        /** Schedule the next poll after the delay. **/
+        private void schedulePoll(final long delayMillis) {
+            this.scheduledPoll = BackgroundLoadingIndicator.SCHEDULER.schedule(this::startPoll, delayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        /** Start the poll in a new thread, not blocking the scheduler. **/
+        private void startPoll() {
+            final var thread = new Thread(this::poll);
+            thread.setName("background-shared-poll");
+            thread.setDaemon(true);
+
+            synchronized (BackgroundSharedPoller.this) {
+                if (this.stopped) {
+                    return;
+                }
+                this.pollingThread = thread;
+            }
+            thread.start();
+        }
+
+        /** Poll the key and push the result to the subscribers, then schedule the next poll. **/
+        private void poll() {
+            try {
+                final var value = pollingTask.poll(this.key);
+
+                final List<Subscriber> currentSubscribers;
+                synchronized (BackgroundSharedPoller.this) {
+                    if (this.stopped || (this.polled && Objects.equals(this.latestValue, value))) {
+                        return;
+                    }
+                    this.polled = true;
+                    this.latestValue = value;
+                    currentSubscribers = List.copyOf(this.subscribers);
+                }
+
+                log.debug("Pushing the new result of {} to {} subscribers.", this.key, currentSubscribers.size());
+                currentSubscribers.forEach(subscriber -> subscriber.access(() -> subscriber.updateUiTask.updateUi(value)));
+            } catch (final RestServiceException e) {
+                log.debug("Polling {} failed.", this.key, e);
+                final List<Subscriber> currentSubscribers;
+                synchronized (BackgroundSharedPoller.this) {
+                    currentSubscribers = this.stopped ? List.of() : List.copyOf(this.subscribers);
+                }
+                currentSubscribers.forEach(subscriber -> subscriber.access(() -> subscriber.handleError(e)));
+            } catch (final RuntimeException e) {
+                log.error("Could not poll {}.", this.key, e);
+            } finally {
+                synchronized (BackgroundSharedPoller.this) {
+                    this.pollingThread = null;
+                    if (!this.stopped) {
+                        schedulePoll(interval.toMillis());
+                    }
+                }
+            }
+        }
+
+        /** Stop polling, interrupting the running poll. **/
+        private void stop() {
+            this.stopped = true;
+            if (null != this.scheduledPoll) {
+                this.scheduledPoll.cancel(false);
+            }
+            if (null != this.pollingThread) {
+                this.pollingThread.interrupt();
+            }
+        }
+    }
+
+    /** A subscribed UI. Compared by identity. **/
+    private final class Subscriber {
+        /** The subscribed UI. **/
+        @NonNull
+        private final UI ui;
+        /** The task to update the UI with the polled data. **/
+        @NonNull
+        private final UpdateUiInterface<V> updateUiTask;
+        /** The task to update the UI on error, if any. **/
+        @Nullable
+        private final UpdateUiOnErrorInterface updateUiOnErrorTask;
+        /** If unsubscribed meanwhile, e.g. while a push was queued. **/
+        private volatile boolean unsubscribed;
+
+        /** Create an instance. **/
+        private Subscriber(@NonNull final UI ui, @NonNull final UpdateUiInterface<V> updateUiTask,
+                @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask) {
+            this.ui = ui;
+            this.updateUiTask = updateUiTask;
+            this.updateUiOnErrorTask = updateUiOnErrorTask;
+        }
+
+        /** Run the command with the UI being locked; skipped if unsubscribed or the UI was detached meanwhile. **/
+        private void access(@NonNull final Runnable command) {
+            try {
+                this.ui.access(() -> {
+                    if (!this.unsubscribed) {
+                        command.run();
+                    }
+                });
+            } catch (final UIDetachedException e) {
+                log.debug("UI detached, skipping the push of the polled result.");
+            }
+        }
+
+        /** Call the custom error task or show a notification. Must be called with the UI being locked. **/
+        private void handleError(@NonNull final RestServiceException restServiceException) {
+            if (null != this.updateUiOnErrorTask) {
+                this.updateUiOnErrorTask.runOnUiAfterError(restServiceException);
+            } else {
+                NotificationHelper.showException(restServiceException.getUserMessage(), restServiceException);
+            }
+        }
+    }
+
+    /** Interface for polling a key in the background. **/
+    @FunctionalInterface
+    public static interface PollingInterface<K, V> {
+        /**
+         * Poll the value of the given key.
+         *
+         * @param key
+         *            the key to poll
+         * @return the polled value
+         * @throws BackgroundLoadingException
+         *             if an exception happened while loading; the contained user message will be displayed to the user
+         * @throws RestServiceException
+         *             if an exception happened during the rest call.
+         **/
+        @Nullable
+        V poll(@NonNull K key) throws BackgroundLoadingException, RestServiceException;
+    }
+}
@@ -0,0 +1,169 @@
+package de.bcersows.vaadinhelper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.DoubleAdder;
+
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import de.bcersows.vaadinhelper.BackgroundLoadingHelper.BackgroundLoadingException;
+import de.bcersows.vaadinhelper.BackgroundLoadingHelper.SplittableDataTask;
+import de.bcersows.vaadinhelper.BackgroundOperationManager.ProgressReporter;
+import de.bcersows.vaadinhelper.BackgroundOperationManager.RestServiceException;
+
+/**
+ * A split-merge computation of a {@link SplittableDataTask} on a {@link ForkJoinPool}: the input is split recursively, the parts are computed in parallel
+ * and their results are merged again. Every computed part reports its share of the input as progress.
+ *
+ * @author bcersows
+ * @param <T>
+ *            the input type
+ * @param <R>
+ *            the result type
+ */
+final class BackgroundSplitComputation<T, R> {
+    /** The task to compute. **/
+    @NonNull
+    private final SplittableDataTask<T, R> splittableTask;
+    /** The reporter of the progress. **/
+    @NonNull
+    private final ProgressReporter progressReporter;
+    /** The share of the input computed already. **/
+    @NonNull
+    private final DoubleAdder computedShare = new DoubleAdder();
+    /** If the computation was cancelled; parts not started yet are skipped. **/
+    private volatile boolean cancelled;
+
+    /** Create an instance. **/
+    private BackgroundSplitComputation(@NonNull final SplittableDataTask<T, R> splittableTask, @NonNull final ProgressReporter progressReporter) {
+        this.splittableTask = splittableTask;
+        this.progressReporter = progressReporter;
+    }
+
+    /**
+     * Compute the task for the given input on the pool. Blocks until the result is available; interrupting the calling thread cancels the computation.
+     *
+     * @param forkJoinPool
+     *            the pool to compute the parts on
+     * @param input
+     *            the input to split
+     * @param splittableTask
+     *            the task to compute
+     * @param progressReporter
+     *            the reporter of the progress
+     * @return the merged result
+     * @throws RestServiceException
+     *             if computing a part failed
+     */
+    @Nullable
+    static <T, R> R compute(@NonNull final ForkJoinPool forkJoinPool, @NonNull final T input, @NonNull final SplittableDataTask<T, R> splittableTask,
+            @NonNull final ProgressReporter progressReporter) throws RestServiceException {
+        final var computation = new BackgroundSplitComputation<>(splittableTask, progressReporter);
+        final var rootPart = forkJoinPool.submit(computation.new PartTask(input, 1.0));
+        try {
+            return rootPart.get();
+        } catch (final InterruptedException e) {
+            computation.cancelled = true;
+            rootPart.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new BackgroundLoadingException("Split computation was interrupted.", "The loading was cancelled.", e);
+        } catch (final ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /** Unwrap the failure of a part; the pool may wrap it into a copy of itself. **/
+    @NonNull
+    private static RestServiceException unwrap(@NonNull final ExecutionException executionException) {
+        for (var cause = executionException.getCause(); null != cause; cause = cause.getCause()) {
+            if (cause instanceof PartFailedException) {
+                return (RestServiceException) cause.getCause();
+            }
+        }
+
+        final var cause = executionException.getCause();
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new BackgroundLoadingException("Split computation failed.", "The data could not be loaded.", cause);
+    }
+
+    /**
+     * A part of the input, which is either split further or computed.
+     *
+     * @author bcersows
+     */
+    private final class PartTask extends RecursiveTask<R> {
+        private static final long serialVersionUID = 1L;
+
+        /** The input of the part. **/
+        @NonNull
+        private final transient T input;
+        /** The share of the whole input. **/
+        private final double share;
+
+        /** Create an instance. **/
+        private PartTask(@NonNull final T input, final double share) {
+            this.input = input;
+            this.share = share;
+        }
+
+        @Override
+        protected R compute() {
+            if (cancelled) {
+                throw new CancellationException("Split computation was cancelled.");
+            }
+
+            final var parts = splittableTask.split(this.input);
+            if (null == parts || parts.isEmpty()) {
+                return computePart();
+            }
+
+            // fork the parts and merge their results in order
+            final var partShare = this.share / parts.size();
+            final List<PartTask> partTasks = new ArrayList<>(parts.size());
+            for (final var part : parts) {
+                partTasks.add(new PartTask(part, partShare));
+            }
+            invokeAll(partTasks);
+
+            var result = partTasks.get(0).join();
+            for (int i = 1; i < partTasks.size(); i++) {
+                result = splittableTask.merge(result, partTasks.get(i).join());
+            }
+            return result;
+        }
+
+        /** Compute the part directly and report its share as progress. **/
+        @Nullable
+        private R computePart() {
+            final R result;
+            try {
+                result = splittableTask.compute(this.input);
+            } catch (final RestServiceException e) {
+                throw new PartFailedException(e);
+            }
+
+            computedShare.add(this.share);
+            progressReporter.reportProgress(computedShare.sum());
+            return result;
+        }
+    }
+
+    /** Carries the exception of a part through the pool. **/
+    private static final class PartFailedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        /** Create an instance. **/
+        private PartFailedException(@NonNull final RestServiceException cause) {
+            super(cause);
+        }
+    }
+}
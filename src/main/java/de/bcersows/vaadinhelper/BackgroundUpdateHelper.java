@@ -1,12 +1,24 @@
 package de.bcersows.vaadinhelper;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
 
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
 import com.vaadin.flow.component.html.Div;
 import com.vaadin.flow.component.html.Label;
 import com.vaadin.flow.dom.Element;
+import com.vaadin.flow.server.VaadinSession;
 
+import de.bcersows.vaadinhelper.helpers.NotificationHelper;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -24,6 +36,17 @@ public final class BackgroundUpdateHelper extends BackgroundOperationManager {
     /** The ID of the modal label. **/
     protected static final String ID_MODAL_CONTENT = "bg-loading-modal-content";
 
+    /** The rate limiter for background updates, if any. **/
+    @Nullable
+    private static volatile BackgroundRateLimiter rateLimiter;
+
+    /**
+     * Set the rate limiter applied per principal to all background updates. {@code null} disables the limit.
+     */
+    public static void setRateLimiter(@Nullable final BackgroundRateLimiter rateLimiter) {
+        BackgroundUpdateHelper.rateLimiter = rateLimiter;
+    }
+
     /**
      * Start a task for background data update. Will show a custom loading indicator.
      * 
@@ -88,6 +111,91 @@ public final class BackgroundUpdateHelper extends BackgroundOperationManager {
         startBackgroundUpdate(input, updateDataTask, updateUiTask, updateUiOnErrorTask, BackgroundUpdateConfiguration.withModal());
     }
 
+    /**
+     * Start a task for background data update, applying its UI change optimistically right away instead of blocking the UI. If the update doesn't
+     * succeed, e.g. fails, is rejected or cancelled, the change is rolled back; errors are handled after the rollback.
+     * 
+     * @param <V>
+     *            the input data type
+     * @param <R>
+     *            the return data type
+     * @param input
+     *            the input data, if any
+     * @param optimisticUiTask
+     *            applies the expected UI change right away and returns how to restore the previous state
+     * @param updateDataTask
+     *            task/provider to actually update the data<br/>
+     *            <strong>This task shall not access the UI elements in any way! In case of a problem, throw the appropriate exception!</strong>
+     * @param updateUiTask
+     *            task/consumer to update the UI with the returned data, e.g. with server-generated values
+     */
+    public static <V, R> void startOptimisticBackgroundUpdate(@Nullable final V input, @NonNull final OptimisticUiInterface optimisticUiTask,
+            @NonNull final DataUpdateInterface<V, R> updateDataTask, @NonNull final UpdateUiInterface<R> updateUiTask) {
+        startOptimisticBackgroundUpdate(input, optimisticUiTask, updateDataTask, updateUiTask, null);
+    }
+
+    /**
+     * Start a task for background data update, applying its UI change optimistically right away instead of blocking the UI. If the update doesn't
+     * succeed, e.g. fails, is rejected or cancelled, the change is rolled back; errors are handled after the rollback.
+     * 
+     * @param <V>
+     *            the input data type
+     * @param <R>
+     *            the return data type
+     * @param input
+     *            the input data, if any
+     * @param optimisticUiTask
+     *            applies the expected UI change right away and returns how to restore the previous state
+     * @param updateDataTask
+     *            task/provider to actually update the data<br/>
+     *            <strong>This task shall not access the UI elements in any way! In case of a problem, throw the appropriate exception!</strong>
+     * @param updateUiTask
+     *            task/consumer to update the UI with the returned data, e.g. with server-generated values
+     * @param updateUiOnErrorTask
+     *            if provided, will be called after the rollback in the error case instead of showing a notification
+     */
+    public static <V, R> void startOptimisticBackgroundUpdate(@Nullable final V input, @NonNull final OptimisticUiInterface optimisticUiTask,
+            @NonNull final DataUpdateInterface<V, R> updateDataTask, @NonNull final UpdateUiInterface<R> updateUiTask,
+            @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask) {
+        final var ui = UI.getCurrent();
+        if (null == ui) {
+            throw new IllegalStateException("Optimistic update must be started from a valid UI location.");
+        }
+
+        // apply the change while the UI is still locked by the caller; rolled back at most once, only accessed with the UI being locked
+        final var rollbackTask = optimisticUiTask.applyOptimistically();
+        final var rolledBack = new AtomicBoolean();
+        final RollbackInterface rollbackOnce = () -> {
+            if (!rolledBack.getAndSet(true)) {
+                rollbackTask.rollback();
+            }
+        };
+
+        new BackgroundWriteOperation<V, R>(input, updateDataTask, updateUiTask, restServiceException -> {
+            rollbackOnce.rollback();
+
+            if (null != updateUiOnErrorTask) {
+                updateUiOnErrorTask.runOnUiAfterError(restServiceException);
+            } else {
+                NotificationHelper.showException(restServiceException.getUserMessage(), restServiceException);
+            }
+        }, null) {
+            @Override
+            protected void postOperationFinish(final boolean succeeded) {
+                if (succeeded) {
+                    return;
+                }
+
+                // not updated however it ended, e.g. also if it failed unexpectedly or was cancelled
+                try {
+                    ui.access(rollbackOnce::rollback);
+                } catch (final UIDetachedException e) {
+                    // nothing to roll back anymore
+                }
+            }
+        }.startBackgroundOperation();
+    }
+
     /**
      * Start a task for background data update. Will show a custom loading indicator.
      * 
@@ -115,6 +223,178 @@ public final class BackgroundUpdateHelper extends BackgroundOperationManager {
         backgroundLoadingOperation.startBackgroundOperation();
     }
 
+    /**
+     * Start a task for background data update without a UI, e.g. for a nightly precomputation. It's rate limited, ordered, traced and drained on shutdown
+     * like the updates of a UI; invalidation tags of the configuration are published to all sessions.
+     * 
+     * @param <V>
+     *            the input data type
+     * @param <R>
+     *            the return data type
+     * @param input
+     *            the input data, if any
+     * @param updateDataTask
+     *            task/provider to actually update the data
+     * @param backgroundUpdateConfiguration
+     *            the configuration of the update; its UI settings are ignored
+     * @return the returned data; completed exceptionally if the update failed or was rejected, and cancelled if the update was cancelled
+     */
+    @NonNull
+    public static <V, R> CompletableFuture<R> startDetachedBackgroundUpdate(@Nullable final V input, @NonNull final DataUpdateInterface<V, R> updateDataTask,
+            @Nullable final BackgroundUpdateConfiguration backgroundUpdateConfiguration) {
+        final var updatedData = new CompletableFuture<R>();
+        final var backgroundWriteOperation = new BackgroundWriteOperation<V, R>(input, value -> {
+            try {
+                return updateDataTask.updateData(value);
+            } catch (final RuntimeException e) {
+                updatedData.completeExceptionally(e);
+                throw e;
+            }
+        }, updatedData::complete, updatedData::completeExceptionally, backgroundUpdateConfiguration) {
+            @Override
+            protected void postOperationFinish(final boolean succeeded) {
+                // finished without a result, e.g. cancelled on shutdown
+                updatedData.cancel(false);
+            }
+        };
+        backgroundWriteOperation.startDetachedOperation();
+        return updatedData;
+    }
+
+    /**
+     * Start an asynchronous background data update. No thread is blocked while waiting for the update. Will show a custom loading indicator.
+     * 
+     * @param <V>
+     *            the input data type
+     * @param <R>
+     *            the return data type
+     * @param input
+     *            the input data, if any
+     * @param asyncUpdateDataTask
+     *            task/provider starting to update the data, e.g. using an asynchronous HTTP client; it's called on the UI thread, so must not block<br/>
+     *            <strong>The returned stage shall not access the UI elements in any way! In case of a problem, complete it with the appropriate
+     *            exception!</strong>
+     * @param updateUiTask
+     *            task/consumer to display the UI with the loaded data
+     */
+    public static <V, R> void startAsyncBackgroundUpdate(@Nullable final V input, @NonNull final AsyncDataUpdateInterface<V, R> asyncUpdateDataTask,
+            @NonNull final UpdateUiInterface<R> updateUiTask) {
+        startAsyncBackgroundUpdate(input, asyncUpdateDataTask, updateUiTask, null);
+    }
+
+    /**
+     * Start an asynchronous background data update. No thread is blocked while waiting for the update. Will show a custom loading indicator.
+     * 
+     * @param <V>
+     *            the input data type
+     * @param <R>
+     *            the return data type
+     * @param input
+     *            the input data, if any
+     * @param asyncUpdateDataTask
+     *            task/provider starting to update the data, e.g. using an asynchronous HTTP client; it's called on the UI thread, so must not block<br/>
+     *            <strong>The returned stage shall not access the UI elements in any way! In case of a problem, complete it with the appropriate
+     *            exception!</strong>
+     * @param updateUiTask
+     *            task/consumer to display the UI with the loaded data
+     * @param updateUiOnErrorTask
+     *            if provided, will be called in the error case instead of showing a notification. Allows for modification on the UI.
+     */
+    public static <V, R> void startAsyncBackgroundUpdate(@Nullable final V input, @NonNull final AsyncDataUpdateInterface<V, R> asyncUpdateDataTask,
+            @NonNull final UpdateUiInterface<R> updateUiTask, @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask) {
+        startAsyncBackgroundUpdate(input, asyncUpdateDataTask, updateUiTask, updateUiOnErrorTask, null);
+    }
+
+    /**
+     * Start an asynchronous background data update. No thread is blocked while waiting for the update. Will show a custom loading indicator.
+     * 
+     * @param <V>
+     *            the input data type
+     * @param <R>
+     *            the return data type
+     * @param input
+     *            the input data, if any
+     * @param asyncUpdateDataTask
+     *            task/provider starting to update the data, e.g. using an asynchronous HTTP client; it's called on the UI thread, so must not block<br/>
+     *            <strong>The returned stage shall not access the UI elements in any way! In case of a problem, complete it with the appropriate
+     *            exception!</strong>
+     * @param updateUiTask
+     *            task/consumer to display the UI with the loaded data
+     * @param updateUiOnErrorTask
+     *            if provided, will be called in the error case instead of showing a notification. Allows for modification on the UI.
+     * @param backgroundUpdateConfiguration
+     *            the configuration of the update
+     */
+    public static <V, R> void startAsyncBackgroundUpdate(@Nullable final V input, @NonNull final AsyncDataUpdateInterface<V, R> asyncUpdateDataTask,
+            @NonNull final UpdateUiInterface<R> updateUiTask, @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask,
+            @Nullable final BackgroundUpdateConfiguration backgroundUpdateConfiguration) {
+        final var backgroundLoadingOperation = new BackgroundWriteOperation<>(input, asyncUpdateDataTask, updateUiTask, updateUiOnErrorTask,
+                backgroundUpdateConfiguration);
+        backgroundLoadingOperation.startBackgroundOperation();
+    }
+
+    /**
+     * Start a background update from a publisher, e.g. a {@code Mono} adapted using {@code JdkFlowAdapter.publisherToFlowPublisher(mono)}. It's only
+     * subscribed to once the operation starts, so rejected updates are never sent; no thread is blocked while waiting for it. Will show a custom loading
+     * indicator.
+     * 
+     * @param <R>
+     *            the return data type
+     * @param publisher
+     *            the publisher sending the update; its last item is the result. A {@link RestServiceException} signalled as error is handled like a thrown
+     *            one<br/>
+     *            <strong>It shall not access the UI elements in any way!</strong>
+     * @param updateUiTask
+     *            task/consumer to display the UI with the result
+     * @param updateUiOnErrorTask
+     *            if provided, will be called in the error case instead of showing a notification. Allows for modification on the UI.
+     * @param backgroundUpdateConfiguration
+     *            the configuration of the update
+     */
+    public static <R> void startReactiveBackgroundUpdate(@NonNull final Flow.Publisher<R> publisher, @NonNull final UpdateUiInterface<R> updateUiTask,
+            @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask, @Nullable final BackgroundUpdateConfiguration backgroundUpdateConfiguration) {
+        startAsyncBackgroundUpdate(null, input -> subscribe(publisher, items -> items.isEmpty() ? null : items.get(items.size() - 1)), updateUiTask,
+                updateUiOnErrorTask, backgroundUpdateConfiguration);
+    }
+
+    /**
+     * Start a write-behind update: the input is appended to the durable journal and acknowledged to the UI right away, while the journal flushes it to the
+     * backend in batches later. For high write volumes whose backend latency shouldn't block the user.
+     * 
+     * @param <V>
+     *            the input data type
+     * @param input
+     *            the input data
+     * @param writeJournal
+     *            the journal flushing the updates to the backend
+     * @param updateUiTask
+     *            task/consumer to update the UI once the input is journaled
+     */
+    public static <V> void startWriteBehindUpdate(@Nullable final V input, @NonNull final BackgroundWriteJournal<V> writeJournal,
+            @NonNull final UpdateUiInterface<V> updateUiTask) {
+        startWriteBehindUpdate(input, writeJournal, updateUiTask, null);
+    }
+
+    /**
+     * Start a write-behind update: the input is appended to the durable journal and acknowledged to the UI right away, while the journal flushes it to the
+     * backend in batches later. For high write volumes whose backend latency shouldn't block the user.
+     * 
+     * @param <V>
+     *            the input data type
+     * @param input
+     *            the input data
+     * @param writeJournal
+     *            the journal flushing the updates to the backend
+     * @param updateUiTask
+     *            task/consumer to update the UI once the input is journaled
+     * @param updateUiOnErrorTask
+     *            if provided, will be called if journaling failed instead of showing a notification. Allows for modification on the UI.
+     */
+    public static <V> void startWriteBehindUpdate(@Nullable final V input, @NonNull final BackgroundWriteJournal<V> writeJournal,
+            @NonNull final UpdateUiInterface<V> updateUiTask, @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask) {
+        startBackgroundUpdate(input, writeJournal::append, updateUiTask, updateUiOnErrorTask);
+    }
+
     /** Interface for updating the data in the background. **/
     @FunctionalInterface
     public static interface DataUpdateInterface<V, R> {
@@ -131,6 +411,40 @@ public final class BackgroundUpdateHelper extends BackgroundOperationManager {
         R updateData(@Nullable V input) throws RestServiceException;
     }
 
+    /** Interface for updating the data asynchronously, without blocking a thread. **/
+    @FunctionalInterface
+    public static interface AsyncDataUpdateInterface<V, R> {
+        /**
+         * Start updating the data. Must not block, as it's called on the UI thread.
+         * 
+         * @param input
+         *            the input
+         * @return the stage completing with the loaded data, can be {@code null}; or exceptionally with a {@link RestServiceException}, which is handled
+         *         like a thrown one
+         **/
+        @NonNull
+        CompletionStage<R> updateData(@Nullable V input);
+    }
+
+    /** Interface for applying a UI change optimistically, before the update finished. **/
+    @FunctionalInterface
+    public static interface OptimisticUiInterface {
+        /**
+         * Apply the expected change to the UI.
+         * 
+         * @return the rollback restoring the previous state of the UI
+         **/
+        @NonNull
+        RollbackInterface applyOptimistically();
+    }
+
+    /** Interface for rolling back an optimistic UI change. **/
+    @FunctionalInterface
+    public static interface RollbackInterface {
+        /** Restore the state of the UI before the optimistic change. **/
+        void rollback();
+    }
+
     /**
      * Implementation of a background operation.
      * 
@@ -139,6 +453,9 @@ public final class BackgroundUpdateHelper extends BackgroundOperationManager {
     private static class BackgroundWriteOperation<V, R> extends BackgroundOperation<R> {
         /** The configuration of the operation. **/
         private final BackgroundUpdateConfiguration backgroundUpdateConfiguration;
+        /** The modal blocking the UI, while shown. **/
+        @Nullable
+        private Div modal;
 
         /** Create the operation. **/
         public BackgroundWriteOperation(@Nullable final V input, @NonNull final DataUpdateInterface<V, R> updateDataTask,
@@ -149,6 +466,53 @@ public final class BackgroundUpdateHelper extends BackgroundOperationManager {
             this.backgroundUpdateConfiguration = backgroundUpdateConfiguration;
         }
 
+        /** Create the operation, updating without blocking a thread. **/
+        public BackgroundWriteOperation(@Nullable final V input, @NonNull final AsyncDataUpdateInterface<V, R> asyncUpdateDataTask,
+                @NonNull final UpdateUiInterface<R> updateUiTask, @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask,
+                @Nullable final BackgroundUpdateConfiguration backgroundUpdateConfiguration) {
+            super((AsyncDataHandlingInterface<R>) () -> asyncUpdateDataTask.updateData(input), updateUiTask, updateUiOnErrorTask);
+
+            this.backgroundUpdateConfiguration = backgroundUpdateConfiguration;
+        }
+
+        @Override
+        protected void postDataHandled(final VaadinSession session, final R handledData) {
+            if (null == this.backgroundUpdateConfiguration || this.backgroundUpdateConfiguration.invalidationTags.isEmpty()) {
+                return;
+            }
+
+            // independent of the UI update, which may be skipped; queued before it, so it's refreshed with the invalidated caches
+            final var invalidationTags = this.backgroundUpdateConfiguration.invalidationTags;
+            if (null != session) {
+                final var writtenEntity = this.backgroundUpdateConfiguration.writeThrough ? handledData : null;
+                session.access(() -> BackgroundCacheInvalidation.invalidate(session, invalidationTags, writtenEntity));
+            }
+            // refresh the subscribed UIs of all sessions; without a session if detached
+            BackgroundInvalidationBus.publish(session, invalidationTags);
+        }
+
+        @Override
+        protected OperationType getOperationType() {
+            return OperationType.UPDATE;
+        }
+
+        @Override
+        protected BackgroundRateLimiter getRateLimiter() {
+            return rateLimiter;
+        }
+
+        @Override
+        protected String getOrderingKey(final String sessionId) {
+            if (null == this.backgroundUpdateConfiguration) {
+                return null;
+            } else if (this.backgroundUpdateConfiguration.orderedPerSession) {
+                // nothing to order by without a session
+                return null == sessionId ? null : "session:" + sessionId;
+            } else {
+                return this.backgroundUpdateConfiguration.orderingKey;
+            }
+        }
+
         @Override
         protected void preOperationSetup(final Element page, final Div loadingArea) {
             // if configured to to so, block the UI using a modal
@@ -156,9 +520,18 @@ public final class BackgroundUpdateHelper extends BackgroundOperationManager {
                 final var modalLabel = new Label(this.backgroundUpdateConfiguration.wipMessage);
                 modalLabel.setId(ID_MODAL_CONTENT);
 
-                final var modal = new Div(modalLabel);
-                modal.setId(ID_MODAL);
-                loadingArea.add(modal);
+                this.modal = new Div(modalLabel);
+                this.modal.setId(ID_MODAL);
+                loadingArea.add(this.modal);
+            }
+        }
+
+        @Override
+        protected void postOperationTeardown(final Element page, final Div loadingArea) {
+            // the loading area is shared with other operations, so remove the own modal
+            if (null != this.modal) {
+                loadingArea.remove(this.modal);
+                this.modal = null;
             }
         }
     }
@@ -167,22 +540,97 @@ public final class BackgroundUpdateHelper extends BackgroundOperationManager {
     @Data
     @AllArgsConstructor(access = AccessLevel.PRIVATE)
     public static class BackgroundUpdateConfiguration {
+        /** The default WIP message. **/
+        private static final String DEFAULT_WIP_MESSAGE = "Working...";
+
         /** The WIP message. **/
         @NonNull
         private final String wipMessage;
         /** If to show a modal. **/
         private final boolean blockUi;
+        /** The key of the updates to run in submission order, if any. **/
+        @Nullable
+        private final String orderingKey;
+        /** If to run in submission order with the other ordered updates of the session. **/
+        private final boolean orderedPerSession;
+        /** The tags of the cached loads to invalidate after a successful update. **/
+        @NonNull
+        private final Set<String> invalidationTags;
+        /** If to write the returned entity through to the invalidated cached loads, instead of evicting them. **/
+        private final boolean writeThrough;
 
         /** Show a modal with default text. **/
         @NonNull
         public static BackgroundUpdateConfiguration withModal() {
-            return withModal("Working...");
+            return withModal(DEFAULT_WIP_MESSAGE);
         }
 
         /** Show a modal with given text. **/
         @NonNull
         public static BackgroundUpdateConfiguration withModal(@NonNull final String wipMessage) {
-            return new BackgroundUpdateConfiguration(wipMessage, true);
+            return new BackgroundUpdateConfiguration(wipMessage, true, null, false, Set.of(), false);
+        }
+
+        /**
+         * Run the update only after all previously started updates of the session with this configuration finished, so they reach the backend in submission
+         * order. Loads and other updates still run in parallel.
+         */
+        @NonNull
+        public static BackgroundUpdateConfiguration inSessionOrder() {
+            return new BackgroundUpdateConfiguration(DEFAULT_WIP_MESSAGE, false, null, true, Set.of(), false);
+        }
+
+        /**
+         * Run the update only after all previously started updates with the same key finished, e.g. per entity, across all sessions.
+         */
+        @NonNull
+        public static BackgroundUpdateConfiguration inOrder(@NonNull final String orderingKey) {
+            return new BackgroundUpdateConfiguration(DEFAULT_WIP_MESSAGE, false, orderingKey, false, Set.of(), false);
+        }
+
+        /**
+         * Evict the cached loads of the session tagged with any of the given tags, e.g. {@code "customer:42"}, once the update succeeded. See
+         * {@link BackgroundCacheInvalidation}. The tags are also published as topics to the {@link BackgroundInvalidationBus}, refreshing the subscribed
+         * UIs of all sessions.
+         */
+        @NonNull
+        public static BackgroundUpdateConfiguration invalidating(@NonNull final String... tags) {
+            return new BackgroundUpdateConfiguration(DEFAULT_WIP_MESSAGE, false, null, false, Set.copyOf(Arrays.asList(tags)), false);
+        }
+
+        /**
+         * Write the entity returned by the update through to the cached loads of the session tagged with any of the given tags, once the update succeeded.
+         * Cached loads of another type are evicted. See {@link BackgroundCacheInvalidation}.
+         */
+        @NonNull
+        public static BackgroundUpdateConfiguration writingThrough(@NonNull final String... tags) {
+            return new BackgroundUpdateConfiguration(DEFAULT_WIP_MESSAGE, false, null, false, Set.copyOf(Arrays.asList(tags)), true);
+        }
+
+        /**
+         * Copy this configuration, additionally evicting the cached loads tagged with any of the given tags, e.g.
+         * {@code inSessionOrder().andInvalidating(...)}.
+         */
+        @NonNull
+        public BackgroundUpdateConfiguration andInvalidating(@NonNull final String... tags) {
+            return new BackgroundUpdateConfiguration(this.wipMessage, this.blockUi, this.orderingKey, this.orderedPerSession, withTags(tags),
+                    this.writeThrough);
+        }
+
+        /**
+         * Copy this configuration, additionally writing the returned entity through to the cached loads tagged with any of the given tags.
+         */
+        @NonNull
+        public BackgroundUpdateConfiguration andWritingThrough(@NonNull final String... tags) {
+            return new BackgroundUpdateConfiguration(this.wipMessage, this.blockUi, this.orderingKey, this.orderedPerSession, withTags(tags), true);
+        }
+
+        /** Combine the invalidation tags with the given ones. **/
+        @NonNull
+        private Set<String> withTags(@NonNull final String... tags) {
+            final Set<String> combinedTags = new HashSet<>(this.invalidationTags);
+            combinedTags.addAll(Arrays.asList(tags));
+            return Set.copyOf(combinedTags);
         }
     }
 }
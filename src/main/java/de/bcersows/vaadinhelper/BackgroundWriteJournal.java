@@ -0,0 +1,418 @@
+package de.bcersows.vaadinhelper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import de.bcersows.vaadinhelper.BackgroundOperationManager.RestServiceException;
+import de.bcersows.vaadinhelper.BackgroundUpdateHelper.DataUpdateInterface;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A durable write-behind journal for high write volumes. Appended updates are written to a local, memory-mapped, append-only file and acknowledged once
+ * they're on disk; they're flushed to the backend in batches in the background, retrying failed batches with the next flush. Updates not flushed yet, e.g.
+ * because of a crash, are replayed when the journal is opened again.<br/>
+ * The file starts with a header containing the offset up to which the updates were flushed, followed by the records ({@code length}, {@code CRC32},
+ * payload), terminated by a zero length. Once everything was flushed, the file is reused from the start.
+ *
+ * <pre>
+ * final var journal = new BackgroundWriteJournal&lt;Measurement&gt;(Path.of("measurements.journal"), BackgroundWriteJournal.JournalCodec.serializable(),
+ *         measurementService::saveAll, Duration.ofSeconds(5));
+ * BackgroundUpdateHelper.startWriteBehindUpdate(measurement, journal, saved -&gt; NotificationHelper.showSuccess("Saved."));
+ * </pre>
+ *
+ * @author bcersows
+ * @param <V>
+ *            the update type
+ */
+@Slf4j
+public class BackgroundWriteJournal<V> implements Closeable {
+    /** The magic number identifying a journal file. **/
+    private static final int MAGIC = 0x4A524E4C;
+    /** The size of the header: magic number and flushed offset. **/
+    private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES;
+    /** The position of the flushed offset in the header. **/
+    private static final int FLUSHED_OFFSET_POSITION = Integer.BYTES;
+    /** The size of a record header: length and checksum. **/
+    private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+    /** The initially mapped size of the file. **/
+    private static final int INITIAL_CAPACITY = 1024 * 1024;
+    /** The max amount of updates flushed in one batch. **/
+    private static final int MAX_BATCH_SIZE = 500;
+
+    /** The codec of the updates. **/
+    @NonNull
+    private final JournalCodec<V> codec;
+    /** The task flushing a batch of updates to the backend. **/
+    @NonNull
+    private final DataUpdateInterface<List<V>, ?> flushTask;
+    /** The channel of the journal file. **/
+    @NonNull
+    private final FileChannel fileChannel;
+    /** The executor flushing the journal. **/
+    @NonNull
+    private final ScheduledExecutorService flushExecutor;
+    /** Guards the flushing, so batches are flushed one by one. **/
+    @NonNull
+    private final Object flushLock = new Object();
+
+    // only accessed while synchronized
+    /** The mapped file. **/
+    @NonNull
+    private MappedByteBuffer buffer;
+    /** The offset up to which the records were flushed. **/
+    private int flushedOffset;
+    /** The offset the next record is appended at. **/
+    private int writeOffset;
+    /** The amount of records not flushed yet. **/
+    private int pendingWrites;
+
+    /**
+     * Open the journal, replaying updates not flushed yet.
+     *
+     * @param journalFile
+     *            the journal file; created if it doesn't exist
+     * @param codec
+     *            the codec of the updates
+     * @param flushTask
+     *            task flushing a batch of updates to the backend; called in the flushing thread<br/>
+     *            <strong>This task shall not access the UI elements in any way! In case of a problem, throw the appropriate exception!</strong>
+     * @param flushInterval
+     *            the time between the flushes; at least 1ms
+     * @throws IOException
+     *             if the journal file can't be opened
+     */
+    public BackgroundWriteJournal(@NonNull final Path journalFile, @NonNull final JournalCodec<V> codec,
+            @NonNull final DataUpdateInterface<List<V>, ?> flushTask, @NonNull final Duration flushInterval) throws IOException {
+        if (flushInterval.toMillis() <= 0) {
+            throw new IllegalArgumentException("Flush interval must be at least 1ms.");
+        }
+
+        this.codec = codec;
+        this.flushTask = flushTask;
+        this.fileChannel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        final var existingFile = this.fileChannel.size() > 0;
+        this.buffer = this.fileChannel.map(MapMode.READ_WRITE, 0, Math.max(INITIAL_CAPACITY, this.fileChannel.size()));
+        recover(existingFile);
+
+        this.flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final var thread = new Thread(runnable, "background-write-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flushExecutor.scheduleWithFixedDelay(this::flushQuietly, 0, flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Append the update to the journal. Returns once it's on disk; it's flushed to the backend later.
+     *
+     * @param update
+     *            the update
+     * @return the appended update
+     * @throws JournalException
+     *             if the update couldn't be written
+     */
+    @Nullable
+    public V append(@Nullable final V update) throws JournalException {
+        final byte[] payload;
+        try {
+            payload = this.codec.encode(update);
+        } catch (final IOException e) {
+            throw new JournalException("Could not encode update.", e);
+        }
+
+        synchronized (this) {
+            final var recordSize = RECORD_HEADER_SIZE + payload.length;
+            ensureCapacity((long) this.writeOffset + recordSize + Integer.BYTES);
+
+            // terminate after the record first and write its length last, so a torn write is never read
+            this.buffer.putInt(this.writeOffset + recordSize, 0);
+            this.buffer.putInt(this.writeOffset + Integer.BYTES, (int) checksum(payload));
+            this.buffer.duplicate().position(this.writeOffset + RECORD_HEADER_SIZE).put(payload);
+            this.buffer.putInt(this.writeOffset, payload.length);
+            this.buffer.force();
+
+            this.writeOffset += recordSize;
+            this.pendingWrites++;
+        }
+        return update;
+    }
+
+    /**
+     * Flush all pending updates to the backend right away, in batches. Blocks until done. Corrupt records are logged and skipped, so they don't block
+     * the journal.
+     *
+     * @throws RestServiceException
+     *             if flushing a batch failed; it's retried with the next flush
+     */
+    public void flush() throws RestServiceException {
+        synchronized (this.flushLock) {
+            while (true) {
+                final Batch<V> batch;
+                synchronized (this) {
+                    batch = readBatch();
+                }
+                if (0 == batch.records) {
+                    return;
+                }
+
+                // the backend call runs without blocking appends; nothing to call if only corrupt records were read
+                if (!batch.updates.isEmpty()) {
+                    this.flushTask.updateData(batch.updates);
+                }
+
+                synchronized (this) {
+                    markFlushed(batch.end, batch.records);
+                }
+            }
+        }
+    }
+
+    /** Get the amount of updates not flushed yet. **/
+    public synchronized int getPendingWrites() {
+        return this.pendingWrites;
+    }
+
+    /**
+     * Stop flushing and close the file. Pending updates stay in the journal and are replayed when it's opened again.
+     */
+    @Override
+    public void close() throws IOException {
+        this.flushExecutor.shutdown();
+        try {
+            if (!this.flushExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("Journal still flushing, closing anyway.");
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (this) {
+            this.buffer.force();
+            this.fileChannel.close();
+        }
+    }
+
+    /** Flush from the flushing thread, keeping the updates on failure. **/
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (final RestServiceException | RuntimeException e) {
+            log.warn("Could not flush write journal, retrying with the next flush: {}", e.toString());
+        }
+    }
+
+    /** Read the header and find the records not flushed yet. **/
+    private synchronized void recover(final boolean existingFile) throws IOException {
+        if (existingFile && MAGIC != this.buffer.getInt(0)) {
+            this.fileChannel.close();
+            throw new IOException("Not a journal file.");
+        } else if (!existingFile) {
+            this.buffer.putInt(0, MAGIC);
+            this.buffer.putLong(FLUSHED_OFFSET_POSITION, HEADER_SIZE);
+            this.buffer.putInt(HEADER_SIZE, 0);
+            this.buffer.force();
+        }
+
+        this.flushedOffset = (int) this.buffer.getLong(FLUSHED_OFFSET_POSITION);
+        if (this.flushedOffset < HEADER_SIZE || this.flushedOffset > this.buffer.capacity()) {
+            this.fileChannel.close();
+            throw new IOException("Corrupt journal header.");
+        }
+
+        // find the end: the terminator or a torn record
+        this.writeOffset = this.flushedOffset;
+        this.pendingWrites = 0;
+        while (null != readRecord(this.writeOffset)) {
+            this.writeOffset += RECORD_HEADER_SIZE + this.buffer.getInt(this.writeOffset);
+            this.pendingWrites++;
+        }
+        if (this.pendingWrites > 0) {
+            log.info("Replaying {} journaled updates.", this.pendingWrites);
+        }
+    }
+
+    /**
+     * Read the next batch of pending records. Records failing their checksum or decoding are logged and skipped, as retrying them would block the journal
+     * forever.
+     */
+    @NonNull
+    private Batch<V> readBatch() {
+        final var batch = new Batch<V>();
+        var offset = this.flushedOffset;
+        while (offset < this.writeOffset && batch.updates.size() < MAX_BATCH_SIZE) {
+            final var length = this.buffer.getInt(offset);
+            if (length <= 0 || offset + RECORD_HEADER_SIZE + length > this.writeOffset) {
+                // the succeeding records can't be found anymore
+                log.error("Journal record at {} has an invalid length, dropping the remaining {} bytes of the journal.", offset, this.writeOffset - offset);
+                offset = this.writeOffset;
+                break;
+            }
+
+            final var recordOffset = offset;
+            final var payload = readRecord(recordOffset);
+            offset += RECORD_HEADER_SIZE + length;
+            batch.records++;
+            if (null == payload) {
+                log.error("Journal record at {} failed its checksum, skipping it.", recordOffset);
+                continue;
+            }
+            try {
+                batch.updates.add(this.codec.decode(payload));
+            } catch (final IOException | RuntimeException e) {
+                log.error("Could not decode journal record at {}, skipping it.", recordOffset, e);
+            }
+        }
+        batch.end = offset;
+        return batch;
+    }
+
+    /** Read the payload of the record at the offset, or {@code null} if there is no valid record. **/
+    @Nullable
+    private byte[] readRecord(final int offset) {
+        if (offset + RECORD_HEADER_SIZE > this.buffer.capacity()) {
+            return null;
+        }
+        final var length = this.buffer.getInt(offset);
+        if (length <= 0 || offset + RECORD_HEADER_SIZE + length > this.buffer.capacity()) {
+            return null;
+        }
+
+        final var payload = new byte[length];
+        this.buffer.duplicate().position(offset + RECORD_HEADER_SIZE).get(payload);
+        return (int) checksum(payload) == this.buffer.getInt(offset + Integer.BYTES) ? payload : null;
+    }
+
+    /** Mark the records up to the offset as flushed; reuses the file from the start once everything was flushed. **/
+    private void markFlushed(final int offset, final int flushedWrites) {
+        if (offset == this.writeOffset) {
+            this.pendingWrites = 0;
+            this.buffer.putInt(HEADER_SIZE, 0);
+            this.writeOffset = HEADER_SIZE;
+            this.flushedOffset = HEADER_SIZE;
+        } else {
+            this.pendingWrites -= flushedWrites;
+            this.flushedOffset = offset;
+        }
+        this.buffer.putLong(FLUSHED_OFFSET_POSITION, this.flushedOffset);
+        this.buffer.force();
+    }
+
+    /** Map a larger part of the file, if necessary. **/
+    private void ensureCapacity(final long requiredCapacity) throws JournalException {
+        if (requiredCapacity <= this.buffer.capacity()) {
+            return;
+        }
+        if (requiredCapacity > Integer.MAX_VALUE) {
+            throw new JournalException("Journal is full.", null);
+        }
+
+        try {
+            final var newCapacity = Math.min(Integer.MAX_VALUE, Math.max(requiredCapacity, 2L * this.buffer.capacity()));
+            this.buffer = this.fileChannel.map(MapMode.READ_WRITE, 0, newCapacity);
+        } catch (final IOException e) {
+            throw new JournalException("Could not grow journal.", e);
+        }
+    }
+
+    /** Get the checksum of the payload. **/
+    private static long checksum(@NonNull final byte[] payload) {
+        final var crc = new CRC32();
+        crc.update(payload);
+        return crc.getValue();
+    }
+
+    /**
+     * A batch of records read from the journal.
+     *
+     * @author bcersows
+     */
+    private static final class Batch<V> {
+        /** The decoded updates. **/
+        @NonNull
+        private final List<V> updates = new ArrayList<>();
+        /** The amount of records read, including skipped ones. **/
+        private int records;
+        /** The offset after the batch. **/
+        private int end;
+    }
+
+    /**
+     * Codec for the updates written to the journal.
+     *
+     * @author bcersows
+     */
+    public static interface JournalCodec<V> {
+        /** Encode the update. **/
+        @NonNull
+        byte[] encode(@Nullable V update) throws IOException;
+
+        /** Decode the update. **/
+        @Nullable
+        V decode(@NonNull byte[] payload) throws IOException;
+
+        /** Get a codec using Java serialization. **/
+        @NonNull
+        static <V extends Serializable> JournalCodec<V> serializable() {
+            return new JournalCodec<>() {
+                @Override
+                public byte[] encode(final V update) throws IOException {
+                    final var bytes = new ByteArrayOutputStream();
+                    try (final var output = new ObjectOutputStream(bytes)) {
+                        output.writeObject(update);
+                    }
+                    return bytes.toByteArray();
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public V decode(final byte[] payload) throws IOException {
+                    try (final var input = new ObjectInputStream(new ByteArrayInputStream(payload))) {
+                        return (V) input.readObject();
+                    } catch (final ClassNotFoundException e) {
+                        throw new IOException("Unknown journaled class.", e);
+                    }
+                }
+            };
+        }
+    }
+
+    /**
+     * Exception when the journal couldn't be written or read.
+     *
+     * @author bcersows
+     */
+    @Data
+    @EqualsAndHashCode(callSuper = true)
+    @ToString(callSuper = true)
+    public static class JournalException extends RestServiceException {
+        private static final long serialVersionUID = 1L;
+
+        /** Create an instance. **/
+        public JournalException(@NonNull final String message, @Nullable final Throwable cause) {
+            super(message, "The change could not be saved.", cause);
+        }
+    }
+}
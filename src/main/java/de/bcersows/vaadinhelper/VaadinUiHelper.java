@@ -16,6 +16,7 @@ import com.vaadin.flow.router.Route;
 import com.vaadin.flow.router.RouteParameters;
 import com.vaadin.flow.server.InputStreamFactory;
 import com.vaadin.flow.server.StreamResource;
+import com.vaadin.flow.shared.Registration;
 
 import de.bcersows.vaadinhelper.components.Breadcrumbs.NavigationTarget;
 import lombok.AccessLevel;
@@ -64,6 +65,25 @@ public final class VaadinUiHelper {
         }
     }
 
+    /**
+     * Prefetch the data of the navigation target when hovering or focusing the given trigger, e.g. a button calling
+     * {@link #navigate(Class, RouteParameters)}.
+     *
+     * @param trigger
+     *            the component navigating to the target
+     * @param navigationTarget
+     *            the class to navigate to; its data is only prefetched if annotated with {@link BackgroundRoutePreloader.PreloadData}
+     * @param routeParameters
+     *            the parameters for the navigation
+     * @return the registration of the intent listeners
+     * @see BackgroundRoutePreloader#prefetchOnIntent(Component, Class, RouteParameters)
+     */
+    @NonNull
+    public static <C extends Component & NavigationTarget> Registration prefetchOnIntent(@NonNull final Component trigger,
+            @NonNull final Class<? extends C> navigationTarget, @NonNull final RouteParameters routeParameters) {
+        return BackgroundRoutePreloader.prefetchOnIntent(trigger, navigationTarget, routeParameters);
+    }
+
     // component creation and handling
     /** Create a vertical layout without default spacing. **/
     @NonNull
@@ -33,6 +33,7 @@ import com.vaadin.flow.router.NotFoundException;
 import com.vaadin.flow.router.RouteParameters;
 import com.vaadin.flow.router.RouterLink;
 
+import de.bcersows.vaadinhelper.BackgroundRoutePreloader;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -69,6 +70,8 @@ public class Breadcrumbs extends Component {
 
     /** The separator between the elements. **/
     private String separator = "〉";
+    /** If the links prefetch the data of their target on hover or focus. **/
+    private boolean prefetchOnIntent = false;
 
     /** Create an instance. **/
     public Breadcrumbs() {
@@ -290,6 +293,14 @@ public class Breadcrumbs extends Component {
         this.separator = separator;
     }
 
+    /**
+     * Set if the links prefetch the data of their target on hover or focus, see {@link BackgroundRoutePreloader#prefetchOnIntent}. Must be called before
+     * populating the crumbs.
+     */
+    public void setPrefetchOnIntent(final boolean prefetchOnIntent) {
+        this.prefetchOnIntent = prefetchOnIntent;
+    }
+
     /**
      * Collect the list of crumbs based on the given crumb. Iterates up through the parents and adds them to the result list.<br/>
      * The last crumb in the list will be made plain.
@@ -548,9 +559,25 @@ public class Breadcrumbs extends Component {
                 break;
         }
 
+        if (this.prefetchOnIntent) {
+            prefetchOnIntent(crumbLink, crumb);
+        }
+
         return crumbLink;
     }
 
+    /**
+     * Prefetch the data of the crumb's target when hovering or focusing the link. Only plain and route parameter targets can be prefetched.
+     */
+    private static void prefetchOnIntent(@NonNull final RouterLink crumbLink, @NonNull final BreadcrumbCreationEntry<?> crumb) {
+        if (BreadcrumbNavigationMode.PLAIN == crumb.navMode && null != crumb.navigationTarget) {
+            BackgroundRoutePreloader.prefetchOnIntent(crumbLink, crumb.navigationTarget, RouteParameters.empty());
+        } else if (BreadcrumbNavigationMode.PARAMETERS == crumb.navMode) {
+            final var parametersCrumb = (RouteParameterBreadcrumbCreationEntry<?>) crumb;
+            BackgroundRoutePreloader.prefetchOnIntent(crumbLink, parametersCrumb.navigationTarget, parametersCrumb.routeParameters);
+        }
+    }
+
     /**
      * Calculate the display name, either by getting the configured value or by enriching using the route parameters, if configured.
      */
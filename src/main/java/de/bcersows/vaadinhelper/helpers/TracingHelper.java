@@ -0,0 +1,255 @@
+package de.bcersows.vaadinhelper.helpers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Helper for lightweight tracing of background operations. Tracing is disabled until an exporter is set using {@link #setExporter(SpanExporter)}; until
+ * then, no spans are created at all.<br/>
+ * The current span is kept per thread, so code running inside a span (e.g. a REST client in a data task) can continue the trace using
+ * {@link #getCurrentSpan()} and {@link Span#getTraceparent()}.
+ *
+ * @author bcersows
+ */
+@Slf4j
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class TracingHelper {
+    /** The span currently active in the thread. **/
+    private static final ThreadLocal<Span> CURRENT_SPAN = new ThreadLocal<>();
+
+    /** The exporter of finished spans; {@code null} disables tracing. **/
+    @Nullable
+    private static volatile SpanExporter exporter;
+
+    /** Set the exporter for finished spans. {@code null} disables tracing (default). **/
+    public static void setExporter(@Nullable final SpanExporter exporter) {
+        TracingHelper.exporter = exporter;
+    }
+
+    /** If tracing is enabled. **/
+    public static boolean isEnabled() {
+        return null != exporter;
+    }
+
+    /** Get the span active in the current thread, if any. **/
+    @Nullable
+    public static Span getCurrentSpan() {
+        return CURRENT_SPAN.get();
+    }
+
+    /**
+     * Start a span.
+     *
+     * @param name
+     *            the name of the span
+     * @param parent
+     *            the parent span; if {@code null}, a new trace is started
+     * @return the started span, or {@code null} if tracing is disabled
+     */
+    @Nullable
+    public static Span startSpan(@NonNull final String name, @Nullable final Span parent) {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        final var traceId = null != parent ? parent.traceId : createId(2);
+        final var parentSpanId = null != parent ? parent.spanId : null;
+        return new Span(name, traceId, createId(1), parentSpanId);
+    }
+
+    /**
+     * Make the given span the current one of the thread, until the returned scope is closed. Does nothing for a {@code null} span.
+     */
+    @NonNull
+    public static Scope activate(@Nullable final Span span) {
+        if (null == span) {
+            return () -> {
+                // nothing to restore
+            };
+        }
+
+        final var previous = CURRENT_SPAN.get();
+        CURRENT_SPAN.set(span);
+        return () -> {
+            if (null != previous) {
+                CURRENT_SPAN.set(previous);
+            } else {
+                CURRENT_SPAN.remove();
+            }
+        };
+    }
+
+    /** End the given span, if any. **/
+    public static void endSpan(@Nullable final Span span) {
+        if (null != span) {
+            span.end();
+        }
+    }
+
+    /** Mark the given span, if any, as failed. **/
+    public static void failSpan(@Nullable final Span span, @NonNull final Throwable throwable) {
+        if (null != span) {
+            span.fail(throwable);
+        }
+    }
+
+    /** Export the finished span. **/
+    private static void export(@NonNull final Span span) {
+        final var currentExporter = exporter;
+        if (null != currentExporter) {
+            try {
+                currentExporter.export(span);
+            } catch (final RuntimeException e) {
+                log.warn("Could not export span {}.", span.name, e);
+            }
+        }
+    }
+
+    /** Create a random hex ID with 16 characters per part. **/
+    @NonNull
+    private static String createId(final int parts) {
+        final var random = ThreadLocalRandom.current();
+        final var id = new StringBuilder();
+        for (int i = 0; i < parts; i++) {
+            id.append(String.format("%016x", random.nextLong()));
+        }
+        return id.toString();
+    }
+
+    /** A scope of an active span. Restores the previous span when closed. **/
+    @FunctionalInterface
+    public static interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /** Exporter SPI for finished spans, e.g. to forward them to a tracing backend. **/
+    @FunctionalInterface
+    public static interface SpanExporter {
+        /** Export the finished span. Called in the thread that finished it, so must be fast. **/
+        void export(@NonNull Span span);
+    }
+
+    /**
+     * A single span of a trace.
+     *
+     * @author bcersows
+     */
+    @Getter
+    @ToString(exclude = "ended")
+    public static final class Span {
+        /** The name of the span. **/
+        @NonNull
+        private final String name;
+        /** The ID of the trace. **/
+        @NonNull
+        private final String traceId;
+        /** The ID of the span. **/
+        @NonNull
+        private final String spanId;
+        /** The ID of the parent span, if any. **/
+        @Nullable
+        private final String parentSpanId;
+        /** The start time. **/
+        @NonNull
+        private final Instant startTime = Instant.now();
+        /** The start in nanoseconds, for the duration. **/
+        @Getter(AccessLevel.NONE)
+        private final long startNanos = System.nanoTime();
+        /** The attributes. **/
+        @NonNull
+        private final Map<String, String> attributes = new ConcurrentHashMap<>();
+        /** The duration, once ended. **/
+        @Nullable
+        private volatile Duration duration;
+        /** The error, if failed. **/
+        @Nullable
+        private volatile Throwable error;
+        /** If ended already. **/
+        @Getter(AccessLevel.NONE)
+        private final AtomicBoolean ended = new AtomicBoolean();
+
+        /** Create an instance. **/
+        private Span(@NonNull final String name, @NonNull final String traceId, @NonNull final String spanId, @Nullable final String parentSpanId) {
+            this.name = name;
+            this.traceId = traceId;
+            this.spanId = spanId;
+            this.parentSpanId = parentSpanId;
+        }
+
+        /** Set an attribute. **/
+        @NonNull
+        public Span setAttribute(@NonNull final String key, @NonNull final String value) {
+            this.attributes.put(key, value);
+            return this;
+        }
+
+        /** Mark the span as failed. **/
+        public void fail(@NonNull final Throwable throwable) {
+            this.error = throwable;
+        }
+
+        /** End the span and export it. Only the first call has an effect. **/
+        public void end() {
+            if (this.ended.compareAndSet(false, true)) {
+                this.duration = Duration.ofNanos(System.nanoTime() - this.startNanos);
+                export(this);
+            }
+        }
+
+        /** Get the W3C trace context header value to continue the trace in another service. **/
+        @NonNull
+        public String getTraceparent() {
+            return "00-" + this.traceId + "-" + this.spanId + "-01";
+        }
+    }
+
+    /**
+     * An exporter keeping all spans in memory, e.g. for tests.
+     *
+     * @author bcersows
+     */
+    public static class InMemorySpanExporter implements SpanExporter {
+        /** The exported spans. **/
+        private final List<Span> spans = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void export(final Span span) {
+            this.spans.add(span);
+        }
+
+        /** Get all exported spans. **/
+        @NonNull
+        public List<Span> getSpans() {
+            return new ArrayList<>(this.spans);
+        }
+
+        /** Get all exported spans with the given name. **/
+        @NonNull
+        public List<Span> getSpans(@NonNull final String name) {
+            return this.spans.stream().filter(span -> span.name.equals(name)).collect(Collectors.toList());
+        }
+
+        /** Remove all exported spans. **/
+        public void clear() {
+            this.spans.clear();
+        }
+    }
+}
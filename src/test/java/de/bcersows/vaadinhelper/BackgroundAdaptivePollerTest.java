@@ -0,0 +1,135 @@
+package de.bcersows.vaadinhelper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.mvysny.kaributesting.v10.MockVaadin;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.dom.DomEvent;
+import com.vaadin.flow.internal.nodefeature.ElementListenerMap;
+
+import de.bcersows.vaadinhelper.BackgroundAdaptivePoller.UiActivity;
+import elemental.json.Json;
+
+public class BackgroundAdaptivePollerTest {
+    /** The minimum interval. **/
+    private static final Duration MIN_INTERVAL = Duration.ofMillis(50);
+    /** The maximum interval. **/
+    private static final Duration MAX_INTERVAL = Duration.ofMillis(200);
+
+    /** The amount of loads. **/
+    private final AtomicInteger loads = new AtomicInteger();
+    /** The data applied to the UI. **/
+    private final List<String> appliedData = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    protected void setUp() throws Exception {
+        MockVaadin.setup();
+        VaadinTestHelper.prepareBackgroundLoading();
+    }
+
+    @AfterEach
+    protected void tearDown() throws Exception {
+        MockVaadin.tearDown();
+    }
+
+    @Test
+    public void testPoll_backsOffWhileUnchanged() throws Exception {
+        final var poller = new BackgroundAdaptivePoller<String>(MIN_INTERVAL, MAX_INTERVAL, () -> {
+            this.loads.incrementAndGet();
+            return "unchanged";
+        }, this.appliedData::add);
+        poller.start();
+        waitUntil(() -> MAX_INTERVAL.equals(poller.getCurrentInterval()));
+
+        assertTrue(this.loads.get() > 1, "polled repeatedly");
+        assertEquals(MAX_INTERVAL, poller.getCurrentInterval(), "backed off to the maximum");
+        assertEquals(List.of("unchanged"), this.appliedData, "unchanged data applied once");
+        poller.stop();
+    }
+
+    @Test
+    public void testPoll_staysFastWhileChanging() throws Exception {
+        final var poller = new BackgroundAdaptivePoller<String>(MIN_INTERVAL, MAX_INTERVAL, () -> "status " + this.loads.incrementAndGet(),
+                this.appliedData::add);
+        poller.start();
+        waitUntil(() -> this.appliedData.size() > 2);
+
+        assertTrue(this.appliedData.size() > 2, "changed data applied");
+        assertEquals(MIN_INTERVAL, poller.getCurrentInterval(), "polling at the minimum interval");
+        poller.stop();
+    }
+
+    @Test
+    public void testPoll_pausesWhileHidden() throws Exception {
+        final var poller = new BackgroundAdaptivePoller<String>(MIN_INTERVAL, MAX_INTERVAL, () -> "status " + this.loads.incrementAndGet(),
+                this.appliedData::add);
+        poller.start();
+        VaadinTestHelper.flushVaadinAccessQueue();
+
+        fireVisibilityChange(true);
+        waitUntil(poller::isPaused);
+        final var loadsWhileHidden = this.loads.get();
+        // nothing to wait for, so give it the time of several polls
+        Thread.sleep(MAX_INTERVAL.toMillis() * 2);
+        VaadinTestHelper.flushVaadinAccessQueue();
+        assertEquals(loadsWhileHidden, this.loads.get(), "not polled while hidden");
+
+        fireVisibilityChange(false);
+        assertFalse(poller.isPaused(), "resumed once visible");
+        waitUntil(() -> this.loads.get() > loadsWhileHidden);
+        poller.stop();
+    }
+
+    @Test
+    public void testPoll_pausesWhileIdle() throws Exception {
+        final var poller = new BackgroundAdaptivePoller<String>(MIN_INTERVAL, MAX_INTERVAL, () -> "status " + this.loads.incrementAndGet(),
+                this.appliedData::add);
+        poller.setIdleTimeout(Duration.ofMillis(200));
+        poller.start();
+        waitUntil(poller::isPaused);
+        poller.stop();
+    }
+
+    @Test
+    public void testPoll_continuesAfterUnexpectedFailure() throws Exception {
+        final var poller = new BackgroundAdaptivePoller<String>(MIN_INTERVAL, MAX_INTERVAL, () -> {
+            if (1 == this.loads.incrementAndGet()) {
+                throw new IllegalStateException("Unexpected failure.");
+            }
+            return "status";
+        }, this.appliedData::add);
+        poller.start();
+        waitUntil(() -> !this.appliedData.isEmpty());
+
+        assertEquals(List.of("status"), this.appliedData, "polled again after the failure");
+        poller.stop();
+    }
+
+    /** Fire the forwarded visibility change, as the browser would. **/
+    private static void fireVisibilityChange(final boolean hidden) {
+        final var element = UI.getCurrent().getElement();
+        final var eventData = Json.createObject();
+        eventData.put(UiActivity.DATA_HIDDEN, hidden);
+        element.getNode().getFeature(ElementListenerMap.class).fireEvent(new DomEvent(element, UiActivity.EVENT_VISIBILITY_CHANGE, eventData));
+    }
+
+    /** Wait until the condition is met, flushing the UI updates of the polls. Fails after about 5s. **/
+    private static void waitUntil(final BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 25 && !condition.getAsBoolean(); i++) {
+            VaadinTestHelper.flushVaadinAccessQueue();
+        }
+        assertTrue(condition.getAsBoolean(), "condition met in time");
+    }
+}
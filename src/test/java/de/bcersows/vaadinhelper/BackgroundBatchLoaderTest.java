@@ -0,0 +1,86 @@
+package de.bcersows.vaadinhelper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.mvysny.kaributesting.v10.MockVaadin;
+
+public class BackgroundBatchLoaderTest {
+
+    private final List<Set<Integer>> loadedBatches = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    protected void setUp() throws Exception {
+        MockVaadin.setup();
+        VaadinTestHelper.prepareBackgroundLoading();
+    }
+
+    @AfterEach
+    protected void tearDown() throws Exception {
+        MockVaadin.tearDown();
+    }
+
+    @Test
+    public void testLoad_batchesAndMemoizes() throws Exception {
+        final var batchLoader = new BackgroundBatchLoader<Integer, String>(keys -> {
+            loadedBatches.add(keys);
+            return keys.stream().collect(Collectors.toMap(Function.identity(), key -> "value " + key));
+        });
+        final var receivedValues = new ConcurrentHashMap<Integer, String>();
+
+        // like rendering multiple rows, with a duplicate key
+        for (final var key : new int[] { 1, 2, 3, 2 }) {
+            batchLoader.load(key, value -> receivedValues.put(key, value));
+        }
+
+        VaadinTestHelper.waitForBackgroundLoad();
+
+        assertEquals(List.of(Set.of(1, 2, 3)), loadedBatches, "loaded in a single batch");
+        assertEquals(Map.of(1, "value 1", 2, "value 2", 3, "value 3"), receivedValues, "values distributed");
+
+        // memoized values are passed right away
+        final var memoizedValue = new StringBuilder();
+        batchLoader.load(3, memoizedValue::append);
+        assertEquals("value 3", memoizedValue.toString(), "memoized value passed");
+        assertEquals(1, loadedBatches.size(), "nothing loaded again");
+    }
+
+    @Test
+    public void testLoad_keyReleasedAfterFailedBatch() throws Exception {
+        final var failing = new AtomicBoolean(true);
+        final var batchLoader = new BackgroundBatchLoader<Integer, String>(keys -> {
+            loadedBatches.add(keys);
+            if (failing.getAndSet(false)) {
+                throw new IllegalStateException("Unexpected failure.");
+            }
+            return keys.stream().collect(Collectors.toMap(Function.identity(), key -> "value " + key));
+        });
+        final var receivedValues = new ConcurrentHashMap<Integer, String>();
+
+        batchLoader.load(1, value -> receivedValues.put(1, value));
+        VaadinTestHelper.flushVaadinAccessQueue();
+        VaadinTestHelper.flushVaadinAccessQueue();
+        assertEquals(1, loadedBatches.size(), "batch loaded");
+        assertEquals(Map.of(), receivedValues, "nothing distributed");
+
+        // the key isn't stuck in the failed batch
+        batchLoader.load(1, value -> receivedValues.put(1, value));
+        VaadinTestHelper.flushVaadinAccessQueue();
+        VaadinTestHelper.waitForBackgroundLoad();
+
+        assertEquals(2, loadedBatches.size(), "loaded again");
+        assertEquals(Map.of(1, "value 1"), receivedValues, "value distributed");
+    }
+}
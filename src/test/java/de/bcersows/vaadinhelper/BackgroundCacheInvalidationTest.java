@@ -0,0 +1,89 @@
+package de.bcersows.vaadinhelper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.mvysny.kaributesting.v10.MockVaadin;
+
+import de.bcersows.vaadinhelper.BackgroundLoadingHelper.DataLoadingInterface;
+import de.bcersows.vaadinhelper.BackgroundUpdateHelper.BackgroundUpdateConfiguration;
+
+public class BackgroundCacheInvalidationTest {
+    /** The amount of loads. **/
+    private final AtomicInteger loads = new AtomicInteger();
+    /** The results applied to the UI. **/
+    private final List<String> appliedResults = new CopyOnWriteArrayList<>();
+    /** Loads the customer. **/
+    private final DataLoadingInterface<String> customerTask = () -> "customer " + this.loads.incrementAndGet();
+
+    @BeforeEach
+    protected void setUp() throws Exception {
+        MockVaadin.setup();
+        VaadinTestHelper.prepareBackgroundLoading();
+    }
+
+    @AfterEach
+    protected void tearDown() throws Exception {
+        MockVaadin.tearDown();
+    }
+
+    @Test
+    public void testInvalidating_evictsTaggedResult() throws Exception {
+        loadCustomer();
+        loadCustomer();
+        assertEquals(1, this.loads.get(), "cached result reused");
+
+        BackgroundUpdateHelper.startBackgroundUpdate("customer", customer -> customer, result -> {
+            // nothing
+        }, null, BackgroundUpdateConfiguration.invalidating("customer:42"));
+        VaadinTestHelper.waitForBackgroundLoad();
+        VaadinTestHelper.flushVaadinAccessQueue();
+
+        loadCustomer();
+        assertEquals(2, this.loads.get(), "loaded again after the update");
+        assertEquals(List.of("customer 1", "customer 1", "customer 2"), this.appliedResults, "fresh result applied");
+    }
+
+    @Test
+    public void testWritingThrough_replacesTaggedResult() throws Exception {
+        loadCustomer();
+
+        BackgroundUpdateHelper.startBackgroundUpdate("customer", customer -> customer + " updated", result -> {
+            // nothing
+        }, null, BackgroundUpdateConfiguration.inSessionOrder().andWritingThrough("customer:42"));
+        VaadinTestHelper.waitForBackgroundLoad();
+        VaadinTestHelper.flushVaadinAccessQueue();
+
+        loadCustomer();
+        assertEquals(1, this.loads.get(), "not loaded again");
+        assertEquals(List.of("customer 1", "customer updated"), this.appliedResults, "written entity applied");
+    }
+
+    @Test
+    public void testInvalidate_otherTagsKept() throws Exception {
+        loadCustomer();
+
+        BackgroundCacheInvalidation.invalidate("customer:7");
+        loadCustomer();
+        assertEquals(1, this.loads.get(), "other tag didn't evict");
+
+        BackgroundCacheInvalidation.invalidate("customer:7", "customer:42");
+        loadCustomer();
+        assertEquals(2, this.loads.get(), "tag evicted");
+    }
+
+    /** Load the customer, tagged, once per session. **/
+    private void loadCustomer() throws InterruptedException {
+        BackgroundLoadingHelper.startSessionBackgroundLoading("customer-42", this.customerTask, this.appliedResults::add, null, Set.of("customer:42"));
+        VaadinTestHelper.waitForBackgroundLoad();
+        VaadinTestHelper.flushVaadinAccessQueue();
+    }
+}
@@ -0,0 +1,117 @@
+package de.bcersows.vaadinhelper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class BackgroundHedgingPolicyTest {
+
+    @Test
+    public void testLoad_hedgesSlowAttempt() throws Exception {
+        final var hedgingPolicy = new BackgroundHedgingPolicy(1);
+
+        // no hedging without enough samples, so not using another thread
+        assertNull(hedgingPolicy.getHedgeDelay("endpoint"), "no samples yet");
+        final var callingThread = Thread.currentThread();
+        for (int i = 0; i < 20; i++) {
+            assertEquals(callingThread, hedgingPolicy.load("endpoint", Thread::currentThread), "loaded in the calling thread");
+        }
+        assertNotNull(hedgingPolicy.getHedgeDelay("endpoint"), "hedge delay known");
+
+        // the first attempt hangs, the hedged one returns right away
+        final var attempts = new AtomicInteger();
+        final var start = System.nanoTime();
+        final var result = hedgingPolicy.load("endpoint", () -> {
+            if (1 == attempts.incrementAndGet()) {
+                try {
+                    Thread.sleep(5000);
+                } catch (final InterruptedException e) {
+                    // cancelled
+                }
+                return "slow";
+            }
+            return "hedged";
+        });
+
+        assertEquals("hedged", result, "faster attempt used");
+        assertEquals(2, attempts.get(), "hedged once");
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2), "did not wait for the slow attempt");
+    }
+
+    @Test
+    public void testLoad_losingHedgeNotRecorded() throws Exception {
+        final var hedgingPolicy = new BackgroundHedgingPolicy(1);
+        for (int i = 0; i < 20; i++) {
+            hedgingPolicy.load("endpoint", () -> sleep(20, "sample"));
+        }
+        final var hedgeDelay = hedgingPolicy.getHedgeDelay("endpoint");
+
+        // the primary wins shortly after the hedge was started, which is cancelled after running just briefly
+        for (int i = 0; i < 3; i++) {
+            final var attempts = new AtomicInteger();
+            final var result = hedgingPolicy.load("endpoint", () -> 1 == attempts.incrementAndGet() ? sleep(40, "primary") : sleep(5000, "hedged"));
+
+            assertEquals("primary", result, "primary used");
+            assertEquals(2, attempts.get(), "hedged");
+        }
+
+        assertTrue(hedgingPolicy.getHedgeDelay("endpoint").compareTo(hedgeDelay) >= 0, "hedge delay did not shrink");
+    }
+
+    @Test
+    public void testLoad_interruptedIsCancelled() throws Exception {
+        final var hedgingPolicy = new BackgroundHedgingPolicy(1);
+        for (int i = 0; i < 20; i++) {
+            hedgingPolicy.load("interrupted", () -> "fast");
+        }
+
+        Thread.currentThread().interrupt();
+        assertThrows(CancellationException.class, () -> hedgingPolicy.load("interrupted", () -> {
+            try {
+                Thread.sleep(5000);
+            } catch (final InterruptedException e) {
+                // cancelled
+            }
+            return "slow";
+        }));
+        assertTrue(Thread.interrupted(), "interrupt flag kept");
+    }
+
+    @Test
+    public void testLatencyHistogram_percentile() throws Exception {
+        final var histogram = new BackgroundHedgingPolicy.LatencyHistogram();
+        for (int i = 0; i < 95; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        for (int i = 0; i < 5; i++) {
+            histogram.record(TimeUnit.SECONDS.toNanos(1));
+        }
+
+        final var p95 = histogram.getPercentile(0.95);
+        assertTrue(p95.compareTo(Duration.ofMillis(10)) >= 0 && p95.compareTo(Duration.ofMillis(20)) < 0, "p95 in the bucket of the fast loads: " + p95);
+    }
+
+    @Test
+    public void testConstructor_invalidRatio() throws Exception {
+        assertThrows(IllegalArgumentException.class, () -> new BackgroundHedgingPolicy(0));
+    }
+
+    /** Sleep, then return the result; returns early if cancelled. **/
+    private static String sleep(final long millis, final String result) {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException e) {
+            // cancelled
+        }
+        return result;
+    }
+}
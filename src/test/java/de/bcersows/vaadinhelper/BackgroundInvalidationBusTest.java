@@ -0,0 +1,100 @@
+package de.bcersows.vaadinhelper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.mvysny.kaributesting.v10.MockVaadin;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.html.Div;
+
+import de.bcersows.vaadinhelper.BackgroundLoadingHelper.DataLoadingInterface;
+import de.bcersows.vaadinhelper.BackgroundUpdateHelper.BackgroundUpdateConfiguration;
+
+public class BackgroundInvalidationBusTest {
+    /** The amount of loads. **/
+    private final AtomicInteger loads = new AtomicInteger();
+    /** The results applied to the UI. **/
+    private final List<String> appliedResults = new CopyOnWriteArrayList<>();
+    /** Loads the customer. **/
+    private final DataLoadingInterface<String> customerTask = () -> "customer " + this.loads.incrementAndGet();
+    /** The component showing the customer. **/
+    private Div owner;
+
+    @BeforeEach
+    protected void setUp() throws Exception {
+        MockVaadin.setup();
+        VaadinTestHelper.prepareBackgroundLoading();
+        BackgroundInvalidationBus.setCoalescingDelay(Duration.ofMillis(100));
+
+        this.owner = new Div();
+        UI.getCurrent().add(this.owner);
+    }
+
+    @AfterEach
+    protected void tearDown() throws Exception {
+        BackgroundInvalidationBus.setCoalescingDelay(Duration.ofMillis(250));
+        MockVaadin.tearDown();
+    }
+
+    @Test
+    public void testPublish_refreshesSubscribedLoadOnce() throws Exception {
+        subscribeCustomer("customer:42");
+
+        BackgroundInvalidationBus.publish("customer:42");
+        BackgroundInvalidationBus.publish("customer:42");
+        BackgroundInvalidationBus.publish("order:1");
+        waitForRefresh();
+
+        assertEquals(2, this.loads.get(), "refresh storm coalesced into a single load");
+        assertEquals(List.of("customer 1", "customer 2"), this.appliedResults, "refreshed result applied");
+    }
+
+    @Test
+    public void testPublish_detachedOwnerNotRefreshed() throws Exception {
+        subscribeCustomer("customer:43");
+        UI.getCurrent().remove(this.owner);
+
+        BackgroundInvalidationBus.publish("customer:43");
+        waitForRefresh();
+
+        assertEquals(1, this.loads.get(), "not loaded again");
+    }
+
+    @Test
+    public void testUpdate_publishesInvalidationTags() throws Exception {
+        subscribeCustomer("customer:44");
+
+        BackgroundUpdateHelper.startBackgroundUpdate("customer", customer -> customer, result -> {
+            // nothing
+        }, null, BackgroundUpdateConfiguration.invalidating("customer:44"));
+        VaadinTestHelper.waitForBackgroundLoad();
+        waitForRefresh();
+
+        assertEquals(2, this.loads.get(), "loaded again after the update");
+    }
+
+    /** Subscribe the customer load to the topic and wait for the initial load. **/
+    private void subscribeCustomer(final String topic) throws InterruptedException {
+        BackgroundInvalidationBus.subscribeLoading(this.owner, Set.of(topic), this.customerTask, this.appliedResults::add);
+        VaadinTestHelper.waitForBackgroundLoad();
+        VaadinTestHelper.flushVaadinAccessQueue();
+        assertEquals(1, this.loads.get(), "loaded initially");
+    }
+
+    /** Wait for the coalescing delay and the started refresh. **/
+    private static void waitForRefresh() throws InterruptedException {
+        Thread.sleep(300);
+        VaadinTestHelper.flushVaadinAccessQueue();
+        VaadinTestHelper.waitForBackgroundLoad();
+        VaadinTestHelper.flushVaadinAccessQueue();
+    }
+}
@@ -4,11 +4,21 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.SubmissionPublisher;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -23,12 +33,19 @@ import com.github.mvysny.kaributesting.v10.MockVaadin;
 import com.github.mvysny.kaributesting.v10.NotificationsKt;
 import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.html.Div;
+import com.vaadin.flow.component.html.Span;
 import com.vaadin.flow.component.progressbar.ProgressBar;
+import com.vaadin.flow.router.BeforeEnterEvent;
+import com.vaadin.flow.router.NavigationTrigger;
+import com.vaadin.flow.router.RouteParameters;
 import com.vaadin.flow.server.VaadinSession;
 
 import de.bcersows.vaadinhelper.BackgroundLoadingHelper.BackgroundLoadingException;
+import de.bcersows.vaadinhelper.BackgroundLoadingHelper.SplittableDataTask;
 import de.bcersows.vaadinhelper.helpers.LogHelper;
 import de.bcersows.vaadinhelper.helpers.NotificationHelper;
+import de.bcersows.vaadinhelper.helpers.TracingHelper;
+import de.bcersows.vaadinhelper.helpers.TracingHelper.InMemorySpanExporter;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -127,6 +144,314 @@ public class BackgroundLoadingHelperTest {
         assertEquals(0, body.getChildCount(), "no children anymore");
     }
 
+    @Test
+    public void testStartBackgroundLoading_withIndicatorDelay() throws Exception {
+        final var resultStorage = new AtomicReference<String>();
+
+        try {
+            BackgroundOperationManager.setIndicatorDelay(Duration.ofSeconds(5));
+
+            BackgroundLoadingHelper.startBackgroundLoading(() -> "fast result", resultStorage::set);
+
+            VaadinTestHelper.waitForBackgroundLoad();
+
+            // the result was displayed, but the loading indicator never added
+            final var body = UI.getCurrent().getElement();
+            assertEquals("fast result", resultStorage.get(), "Result was received successfully");
+            assertFalse(body.hasAttribute("background-operation"), "operation attribute never set");
+            assertFalse(body.hasAttribute("background-loading"), "loading attribute never set");
+            assertEquals(0, body.getChildCount(), "loading area never added");
+        } finally {
+            BackgroundOperationManager.setIndicatorDelay(Duration.ZERO);
+        }
+    }
+
+    @Test
+    public void testStartBackgroundLoading_withTracing() throws Exception {
+        final var exporter = new InMemorySpanExporter();
+        final var traceparent = new AtomicReference<String>();
+
+        try {
+            TracingHelper.setExporter(exporter);
+
+            BackgroundLoadingHelper.startBackgroundLoading(() -> {
+                // the trace context is available in the data task
+                traceparent.set(TracingHelper.getCurrentSpan().getTraceparent());
+                return "result";
+            }, result -> log.info("Result: {}", result));
+
+            VaadinTestHelper.waitForBackgroundLoad();
+            VaadinTestHelper.flushVaadinAccessQueue();
+
+            final var operationSpan = exporter.getSpans("BackgroundLoadingOperation").get(0);
+            for (final var phase : new String[] { BackgroundOperationManager.SPAN_QUEUE_WAIT, BackgroundOperationManager.SPAN_DATA_TASK,
+                    BackgroundOperationManager.SPAN_DATA_CHECK, BackgroundOperationManager.SPAN_UI_UPDATE }) {
+                final var phaseSpan = exporter.getSpans(phase).get(0);
+                assertEquals(operationSpan.getSpanId(), phaseSpan.getParentSpanId(), "phase " + phase + " is a child of the operation");
+            }
+            assertEquals(exporter.getSpans(BackgroundOperationManager.SPAN_DATA_TASK).get(0).getTraceparent(), traceparent.get(), "trace context propagated");
+        } finally {
+            TracingHelper.setExporter(null);
+        }
+    }
+
+    @Test
+    public void testStartBackgroundLoading_withCompletionStage() throws Exception {
+        final var pendingData = new CompletableFuture<String>();
+        final var resultStorage = new AtomicReference<String>();
+
+        BackgroundLoadingHelper.startBackgroundLoading(pendingData, resultStorage::set);
+        VaadinTestHelper.flushVaadinAccessQueue();
+
+        // the indicator is shown while the stage is pending
+        final var body = UI.getCurrent().getElement();
+        assertTrue(body.hasAttribute("background-loading"), "Body has the loading attribute");
+        assertFalse(body.hasAttribute("background-operation-done"), "Body does not have the loaded attribute");
+
+        // complete it from another thread, like an HTTP client would
+        CompletableFuture.runAsync(() -> pendingData.complete("async result"));
+        VaadinTestHelper.waitForBackgroundLoad();
+        VaadinTestHelper.flushVaadinAccessQueue();
+
+        assertEquals("async result", resultStorage.get(), "Result was received successfully");
+        assertFalse(body.hasAttribute("background-loading"), "loading attribute removed from body");
+        assertEquals(0, body.getChildCount(), "no children anymore");
+    }
+
+    @Test
+    public void testStartBackgroundLoading_withPublisher() throws Exception {
+        final var resultStorage = new AtomicReference<List<Integer>>();
+
+        try (final var publisher = new SubmissionPublisher<Integer>()) {
+            BackgroundLoadingHelper.startBackgroundLoading(publisher, resultStorage::set);
+            VaadinTestHelper.flushVaadinAccessQueue();
+
+            publisher.submit(1);
+            publisher.submit(2);
+        }
+        VaadinTestHelper.waitForBackgroundLoad();
+
+        assertEquals(List.of(1, 2), resultStorage.get(), "all items were received");
+    }
+
+    @Test
+    public void testStartAsyncBackgroundLoading() throws Exception {
+        final var pendingData = new CompletableFuture<String>();
+        final var resultStorage = new AtomicReference<String>();
+
+        BackgroundLoadingHelper.startAsyncBackgroundLoading(() -> pendingData, resultStorage::set, result -> !result.isEmpty());
+        VaadinTestHelper.flushVaadinAccessQueue();
+
+        // the indicator is shown while waiting, without any thread being blocked
+        final var body = UI.getCurrent().getElement();
+        assertTrue(body.hasAttribute("background-loading"), "Body has the loading attribute");
+        assertFalse(body.hasAttribute("background-operation-done"), "Body does not have the loaded attribute");
+
+        pendingData.complete("async result");
+        VaadinTestHelper.waitForBackgroundLoad();
+        VaadinTestHelper.flushVaadinAccessQueue();
+
+        assertEquals("async result", resultStorage.get(), "Result was received successfully");
+        assertFalse(body.hasAttribute("background-loading"), "loading attribute removed from body");
+        assertEquals(0, body.getChildCount(), "no children anymore");
+    }
+
+    @Test
+    public void testStartAsyncBackgroundLoading_rateLimitedBeforeStarting() throws Exception {
+        final var startedLoads = new AtomicInteger();
+
+        try {
+            BackgroundLoadingHelper.setRateLimiter(new BackgroundRateLimiter(1, 0.001));
+
+            for (int i = 0; i < 2; i++) {
+                BackgroundLoadingHelper.startAsyncBackgroundLoading(() -> {
+                    startedLoads.incrementAndGet();
+                    return CompletableFuture.completedFuture("result");
+                }, result -> log.info("Result: {}", result));
+            }
+            VaadinTestHelper.waitForBackgroundLoad();
+
+            // the rejected load was never started
+            assertEquals(1, startedLoads.get(), "only a single load started");
+        } finally {
+            BackgroundLoadingHelper.setRateLimiter(null);
+        }
+    }
+
+    @Test
+    public void testStartLatestAsyncBackgroundLoading_onlyLatestApplied() throws Exception {
+        final var staleData = new CompletableFuture<String>();
+        final var latestData = new CompletableFuture<String>();
+        final var appliedResults = new CopyOnWriteArrayList<String>();
+        final var slot = new Div();
+
+        BackgroundLoadingHelper.startLatestAsyncBackgroundLoading(slot, () -> staleData, appliedResults::add, null);
+        BackgroundLoadingHelper.startLatestAsyncBackgroundLoading(slot, () -> latestData, appliedResults::add, null);
+
+        assertTrue(staleData.isCancelled(), "stale load cancelled");
+
+        latestData.complete("latest");
+        VaadinTestHelper.waitForBackgroundLoad();
+        VaadinTestHelper.flushVaadinAccessQueue();
+
+        assertEquals(List.of("latest"), appliedResults, "only the latest result applied");
+        NotificationsKt.expectNoNotifications();
+    }
+
+    @Test
+    public void testStartSessionBackgroundLoading_reattachesInsteadOfReloading() throws Exception {
+        final var releaseLoading = new CountDownLatch(1);
+        final var startedLoads = new AtomicInteger();
+        final var appliedResults = new CopyOnWriteArrayList<String>();
+        final BackgroundLoadingHelper.DataLoadingInterface<String> reportTask = () -> {
+            startedLoads.incrementAndGet();
+            try {
+                releaseLoading.await();
+            } catch (final InterruptedException e) {
+                // nothing
+            }
+            return "report";
+        };
+
+        // started, and started again by the reloaded page while still running
+        BackgroundLoadingHelper.startSessionBackgroundLoading("report-2021", reportTask, appliedResults::add);
+        BackgroundLoadingHelper.startSessionBackgroundLoading("report-2021", reportTask, appliedResults::add);
+        releaseLoading.countDown();
+        VaadinTestHelper.waitForBackgroundLoad();
+        VaadinTestHelper.flushVaadinAccessQueue();
+
+        // reloaded after it finished
+        BackgroundLoadingHelper.startSessionBackgroundLoading("report-2021", reportTask, appliedResults::add);
+        VaadinTestHelper.waitForBackgroundLoad();
+        VaadinTestHelper.flushVaadinAccessQueue();
+
+        assertEquals(1, startedLoads.get(), "only loaded once per session");
+        assertEquals(List.of("report", "report", "report"), appliedResults, "result applied to every UI");
+    }
+
+    @Test
+    public void testStartSessionBackgroundLoading_endedWithoutResultNotReattached() throws Exception {
+        final var startedLoads = new AtomicInteger();
+        final var appliedResults = new CopyOnWriteArrayList<String>();
+
+        // ends without completing the shared result, and the error task isn't called for errors
+        BackgroundLoadingHelper.startSessionBackgroundLoading("report-2022", () -> {
+            startedLoads.incrementAndGet();
+            throw new AssertionError("Unexpected error.");
+        }, appliedResults::add);
+        VaadinTestHelper.waitForBackgroundLoad();
+        VaadinTestHelper.flushVaadinAccessQueue();
+
+        // the reloaded page loads again instead of waiting for the ended operation
+        BackgroundLoadingHelper.startSessionBackgroundLoading("report-2022", () -> "report " + startedLoads.incrementAndGet(), appliedResults::add);
+        VaadinTestHelper.waitForBackgroundLoad();
+        VaadinTestHelper.flushVaadinAccessQueue();
+
+        assertEquals(2, startedLoads.get(), "loaded again");
+        assertEquals(List.of("report 2"), appliedResults, "new result applied");
+    }
+
+    @Test
+    public void testStartPreparedBackgroundLoading() throws Exception {
+        BackgroundLoadingHelper.startPreparedBackgroundLoading(() -> List.of("first", "second"), loadedData -> {
+            assertNull(UI.getCurrent(), "there is no UI available here");
+
+            // build the detached components without the session lock
+            final var list = new Div();
+            loadedData.forEach(item -> list.add(new Span(item)));
+            return list;
+        }, list -> UI.getCurrent().add(list));
+        VaadinTestHelper.waitForBackgroundLoad();
+        VaadinTestHelper.flushVaadinAccessQueue();
+
+        final var attachedList = (Div) UI.getCurrent().getChildren().filter(Div.class::isInstance).findFirst().orElseThrow();
+        assertEquals(2, attachedList.getComponentCount(), "prepared components were attached");
+    }
+
+    @Test
+    public void testStartPreparedBackgroundLoading_attachedComponentRejected() throws Exception {
+        final var attachedDiv = new Div();
+        UI.getCurrent().add(attachedDiv);
+        final var resultStorage = new AtomicReference<Div>();
+
+        BackgroundLoadingHelper.startPreparedBackgroundLoading(() -> "data", loadedData -> attachedDiv, resultStorage::set);
+        VaadinTestHelper.waitForBackgroundLoad();
+        VaadinTestHelper.flushVaadinAccessQueue();
+
+        assertNull(resultStorage.get(), "attached component was not passed on");
+    }
+
+    @Test
+    public void testStartSplitBackgroundLoading() throws Exception {
+        final var resultStorage = new AtomicReference<Long>();
+
+        BackgroundLoadingHelper.startSplitBackgroundLoading(() -> IntStream.rangeClosed(1, 10_000).boxed().collect(Collectors.toList()),
+                SplittableDataTask.<Integer, Long> ofList(100, part -> part.stream().mapToLong(Integer::longValue).sum(), Long::sum), resultStorage::set);
+        VaadinTestHelper.waitForBackgroundLoad();
+        VaadinTestHelper.flushVaadinAccessQueue();
+
+        assertEquals(50_005_000L, resultStorage.get(), "merged result was received");
+        assertEquals(0, UI.getCurrent().getElement().getChildCount(), "no children anymore");
+    }
+
+    @Test
+    public void testStartDetachedBackgroundLoading() throws Exception {
+        // started from a thread without a UI, e.g. a scheduled job
+        final var loadedData = CompletableFuture.supplyAsync(() -> {
+            assertNull(UI.getCurrent(), "no UI available");
+            return BackgroundLoadingHelper.startDetachedBackgroundLoading(() -> "warmed");
+        }).get(5, TimeUnit.SECONDS);
+        assertEquals("warmed", loadedData.get(5, TimeUnit.SECONDS), "loaded without a UI");
+
+        final var failedData = CompletableFuture.supplyAsync(() -> BackgroundLoadingHelper.<String> startDetachedBackgroundLoading(() -> {
+            throw new BackgroundLoadingException("could not load", "error detected");
+        })).get(5, TimeUnit.SECONDS);
+        final var exception = assertThrows(ExecutionException.class, () -> failedData.get(5, TimeUnit.SECONDS));
+        assertTrue(exception.getCause() instanceof BackgroundLoadingException, "failure was passed on");
+    }
+
+    @Test
+    public void testStartViewStateBackgroundLoading_rendersSnapshotOnBackNavigation() throws Exception {
+        final var loads = new AtomicInteger();
+        final var appliedResults = new CopyOnWriteArrayList<String>();
+        final BackgroundLoadingHelper.DataLoadingInterface<String> detailTask = () -> "detail " + loads.incrementAndGet();
+
+        // first visit loads
+        BackgroundLoadingHelper.startViewStateBackgroundLoading(mockBeforeEnterEvent(NavigationTrigger.ROUTER_LINK), detailTask, appliedResults::add, false);
+        VaadinTestHelper.waitForBackgroundLoad();
+        VaadinTestHelper.flushVaadinAccessQueue();
+
+        // back navigation renders the snapshot right away
+        BackgroundLoadingHelper.startViewStateBackgroundLoading(mockBeforeEnterEvent(NavigationTrigger.HISTORY), detailTask, appliedResults::add, false);
+        assertEquals(List.of("detail 1", "detail 1"), appliedResults, "snapshot rendered without loading");
+        assertEquals(1, loads.get(), "not loaded again");
+
+        // ... and revalidates it, if asked to
+        BackgroundLoadingHelper.startViewStateBackgroundLoading(mockBeforeEnterEvent(NavigationTrigger.HISTORY), detailTask, appliedResults::add, true);
+        assertEquals("detail 1", appliedResults.get(2), "snapshot rendered before revalidating");
+        for (int i = 0; i < 50 && appliedResults.size() < 4; i++) {
+            VaadinTestHelper.flushVaadinAccessQueue();
+        }
+        assertEquals(List.of("detail 1", "detail 1", "detail 1", "detail 2"), appliedResults, "revalidated data applied");
+
+        // a link navigation loads again, too
+        BackgroundLoadingHelper.startViewStateBackgroundLoading(mockBeforeEnterEvent(NavigationTrigger.ROUTER_LINK), detailTask, appliedResults::add, false);
+        for (int i = 0; i < 50 && appliedResults.size() < 5; i++) {
+            VaadinTestHelper.flushVaadinAccessQueue();
+        }
+        assertEquals("detail 3", appliedResults.get(4), "loaded on link navigation");
+    }
+
+    /** Mock the before enter event of a detail view. **/
+    private static BeforeEnterEvent mockBeforeEnterEvent(final NavigationTrigger trigger) {
+        final var event = Mockito.mock(BeforeEnterEvent.class);
+        Mockito.when(event.getUI()).thenReturn(UI.getCurrent());
+        Mockito.doReturn(Div.class).when(event).getNavigationTarget();
+        Mockito.when(event.getRouteParameters()).thenReturn(new RouteParameters("id", "42"));
+        Mockito.when(event.getTrigger()).thenReturn(trigger);
+        return event;
+    }
+
     @Nested
     public class DataValidationTest {
         @Test
@@ -225,6 +550,18 @@ public class BackgroundLoadingHelperTest {
             assertEquals("error detected", foundException.getUserMessage());
         }
 
+        @Test
+        public void testBackgroundLoading_withFailedCompletionStage() throws InterruptedException {
+            BackgroundLoadingHelper.startBackgroundLoading(
+                    CompletableFuture.<String>failedFuture(new BackgroundLoadingException("could not finish bg", "async error detected")), result -> {
+                        log.info("Test post");
+                    });
+
+            VaadinTestHelper.waitForBackgroundLoad();
+
+            NotificationsKt.expectNotifications("async error detected");
+        }
+
         @Test
         public void testBackgroundLoading_with_Exception() throws InterruptedException {
             BackgroundLoadingHelper.startBackgroundLoading(() -> {
@@ -0,0 +1,63 @@
+package de.bcersows.vaadinhelper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.mvysny.kaributesting.v10.MockVaadin;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.progressbar.ProgressBar;
+
+public class BackgroundLoadingIndicatorTest {
+
+    @BeforeEach
+    protected void setUp() throws Exception {
+        MockVaadin.setup();
+    }
+
+    @AfterEach
+    protected void tearDown() throws Exception {
+        MockVaadin.tearDown();
+    }
+
+    @Test
+    public void testShowAndHide_sharedBetweenOperations() throws Exception {
+        final var ui = UI.getCurrent();
+        final var body = ui.getElement();
+        final var indicator = BackgroundLoadingIndicator.get(ui);
+        assertSame(indicator, BackgroundLoadingIndicator.get(ui), "one indicator per UI");
+
+        final var firstLoad = indicator.show("background-loading");
+        final var secondLoad = indicator.show("background-loading");
+        final var update = indicator.show(null);
+
+        // only a single loading area
+        assertEquals(3, indicator.getShownOperations());
+        assertEquals(1, ui.getChildren().count(), "single loading area added");
+        assertTrue(body.hasAttribute("background-operation"), "operation attribute set");
+        assertTrue(body.hasAttribute("background-loading"), "loading attribute set");
+
+        // aggregated progress
+        firstLoad.markLoaded(true);
+        firstLoad.markDone();
+        final var progressBar = (ProgressBar) indicator.getLoadingArea().getChildren().findFirst().get();
+        assertEquals(1.0 / 3, progressBar.getValue(), 0.001, "progress is the average of all operations");
+
+        // attributes and area are kept until the last operation is hidden
+        indicator.hide(firstLoad);
+        assertTrue(body.hasAttribute("background-loading"), "loading attribute still set for the second load");
+        indicator.hide(secondLoad);
+        assertFalse(body.hasAttribute("background-loading"), "loading attribute removed after the last load");
+        assertTrue(body.hasAttribute("background-operation"), "operation attribute still set for the update");
+        assertEquals(1, ui.getChildren().count(), "loading area still shown");
+
+        indicator.hide(update);
+        assertFalse(body.hasAttribute("background-operation"), "operation attribute removed");
+        assertEquals(0, ui.getChildren().count(), "loading area removed");
+    }
+}
@@ -3,8 +3,10 @@ package de.bcersows.vaadinhelper;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 
@@ -27,6 +29,8 @@ import de.bcersows.vaadinhelper.BackgroundOperationManager.BackgroundOperation;
 import de.bcersows.vaadinhelper.BackgroundOperationManager.UpdateUiInterface;
 import de.bcersows.vaadinhelper.BackgroundOperationManager.UpdateUiOnErrorInterface;
 import de.bcersows.vaadinhelper.helpers.LogHelper;
+import de.bcersows.vaadinhelper.helpers.TracingHelper;
+import de.bcersows.vaadinhelper.helpers.TracingHelper.InMemorySpanExporter;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -91,10 +95,66 @@ public class BackgroundOperationManagerTest {
 
     }
 
+    @Test
+    public void testPostOperationFinish_uiDetached() throws Exception {
+        final var loadingStarted = new CountDownLatch(1);
+        final var continueLoading = new CountDownLatch(1);
+        final var exporter = new InMemorySpanExporter();
+
+        try {
+            TracingHelper.setExporter(exporter);
+            final var operation = new BackgroundTestOperation(() -> {
+                loadingStarted.countDown();
+                try {
+                    continueLoading.await(5, TimeUnit.SECONDS);
+                } catch (final InterruptedException e) {
+                    // nothing
+                }
+                return "result";
+            }, result -> log.info("Result: {}", result), null);
+            operation.startBackgroundOperation();
+            assertTrue(loadingStarted.await(5, TimeUnit.SECONDS), "loading started");
+
+            // e.g. by a page reload
+            final var ui = UI.getCurrent();
+            ui.getSession().removeUI(ui);
+            continueLoading.countDown();
+
+            assertTrue(operation.finished.await(5, TimeUnit.SECONDS), "finish hook called without the UI");
+            assertTrue(operation.succeeded, "data task succeeded");
+            assertEquals(1, exporter.getSpans("BackgroundTestOperation").size(), "operation span ended");
+        } finally {
+            TracingHelper.setExporter(null);
+        }
+    }
+
+    @Test
+    public void testGetOperationName_anonymousOperation() throws Exception {
+        final var operation = new BackgroundTestOperation(() -> "result", result -> log.info("Result: {}", result), null) {
+            @Override
+            protected boolean isShowingIndicator() {
+                return false;
+            }
+        };
+
+        assertEquals("BackgroundTestOperation", operation.getOperationName(), "named after the nearest named superclass");
+    }
+
     private static class BackgroundTestOperation extends BackgroundOperation<String> {
+        /** Counted down once finished. **/
+        private final CountDownLatch finished = new CountDownLatch(1);
+        /** If the data task succeeded, once finished. **/
+        private volatile boolean succeeded;
+
         protected BackgroundTestOperation(@NonNull final Supplier<String> testDataTask, @NonNull final UpdateUiInterface<String> updateUiTask,
                 @Nullable final UpdateUiOnErrorInterface updateUiOnErrorTask) {
             super(testDataTask::get, updateUiTask, updateUiOnErrorTask);
         }
+
+        @Override
+        protected void postOperationFinish(final boolean succeeded) {
+            this.succeeded = succeeded;
+            this.finished.countDown();
+        }
     }
 }
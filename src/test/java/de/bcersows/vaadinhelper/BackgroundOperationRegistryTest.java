@@ -0,0 +1,81 @@
+package de.bcersows.vaadinhelper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import de.bcersows.vaadinhelper.BackgroundOperationManager.OperationType;
+
+public class BackgroundOperationRegistryTest {
+
+    private final BackgroundOperationRegistry registry = new BackgroundOperationRegistry();
+
+    @Test
+    public void testDrain_waitsForUpdatesAndCancelsLoads() throws Exception {
+        final var updateFinished = new AtomicBoolean();
+        final var loadCancelled = new AtomicBoolean();
+
+        final var updateThread = new Thread(() -> {
+            try {
+                Thread.sleep(200);
+                updateFinished.set(true);
+            } catch (final InterruptedException e) {
+                // cancelled
+            }
+        });
+        final var updateRegistration = registry.register(OperationType.UPDATE, "update", updateThread::interrupt);
+        final var loadRegistration = registry.register(OperationType.LOAD, "load", () -> loadCancelled.set(true));
+        assertNotNull(updateRegistration, "update accepted");
+        assertNotNull(loadRegistration, "load accepted");
+
+        updateThread.start();
+        new Thread(() -> {
+            try {
+                updateThread.join();
+            } catch (final InterruptedException e) {
+                // nothing
+            }
+            updateRegistration.remove();
+        }).start();
+
+        final var drainReport = registry.drain();
+
+        assertTrue(updateFinished.get(), "update was allowed to finish");
+        assertTrue(loadCancelled.get(), "load was cancelled");
+        assertEquals(1, drainReport.getAbandonedOperations().size(), "load was abandoned");
+        assertEquals("load", drainReport.getAbandonedOperations().get(0).getDescription());
+        assertEquals(0, registry.getRunningOperations(), "nothing running anymore");
+    }
+
+    @Test
+    public void testDrain_cancelsUpdatesAfterTimeout() throws Exception {
+        registry.setDrainTimeout(Duration.ofMillis(50));
+        final var cancelled = new CountDownLatch(1);
+
+        registry.register(OperationType.UPDATE, "slow update", cancelled::countDown);
+
+        final var drainReport = registry.drain();
+
+        assertEquals(0, cancelled.getCount(), "update was cancelled");
+        assertEquals(1, drainReport.getAbandonedOperations().size(), "update was abandoned");
+        assertEquals(OperationType.UPDATE, drainReport.getAbandonedOperations().get(0).getOperationType());
+    }
+
+    @Test
+    public void testRegister_rejectedAfterDrain() throws Exception {
+        registry.drain();
+
+        assertFalse(registry.isAccepting(), "not accepting anymore");
+        assertNull(registry.register(OperationType.LOAD, "load", () -> {
+        }), "operation rejected");
+        assertEquals(0, registry.getRunningOperations(), "nothing registered");
+    }
+}
@@ -0,0 +1,55 @@
+package de.bcersows.vaadinhelper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+public class BackgroundRateLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    public void testTryAcquire_burstAndRefill() throws Exception {
+        final var rateLimiter = new BackgroundRateLimiter(3, 1, 100, clock::get);
+
+        assertTrue(rateLimiter.tryAcquire("user"), "first token");
+        assertTrue(rateLimiter.tryAcquire("user"), "second token");
+        assertTrue(rateLimiter.tryAcquire("user"), "third token");
+        assertFalse(rateLimiter.tryAcquire("user"), "bucket empty");
+
+        // other principals are not affected
+        assertTrue(rateLimiter.tryAcquire("other"), "separate bucket per principal");
+
+        // refill a single token
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertTrue(rateLimiter.tryAcquire("user"), "refilled token");
+        assertFalse(rateLimiter.tryAcquire("user"), "bucket empty again");
+    }
+
+    @Test
+    public void testTryAcquire_sweepsIdleBuckets() throws Exception {
+        final var rateLimiter = new BackgroundRateLimiter(1, 1, 2, clock::get);
+
+        rateLimiter.tryAcquire("a");
+        rateLimiter.tryAcquire("b");
+        rateLimiter.tryAcquire("c");
+        assertEquals(3, rateLimiter.getTrackedPrincipals(), "all principals tracked");
+
+        // after being idle, the buckets are full again and will be dropped on the next acquire
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        rateLimiter.tryAcquire("d");
+        assertEquals(1, rateLimiter.getTrackedPrincipals(), "idle principals swept");
+    }
+
+    @Test
+    public void testInvalidConfiguration() throws Exception {
+        assertThrows(IllegalArgumentException.class, () -> new BackgroundRateLimiter(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new BackgroundRateLimiter(1, 0));
+    }
+}
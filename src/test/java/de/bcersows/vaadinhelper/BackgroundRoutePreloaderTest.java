@@ -0,0 +1,217 @@
+package de.bcersows.vaadinhelper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.mvysny.kaributesting.v10.MockVaadin;
+import com.github.mvysny.kaributesting.v10.NotificationsKt;
+import com.github.mvysny.kaributesting.v10.Routes;
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.html.Div;
+import com.vaadin.flow.dom.DomEvent;
+import com.vaadin.flow.internal.nodefeature.ElementListenerMap;
+import com.vaadin.flow.router.BeforeEnterEvent;
+import com.vaadin.flow.router.BeforeEnterObserver;
+import com.vaadin.flow.router.Route;
+import com.vaadin.flow.router.RouteParameters;
+
+import de.bcersows.vaadinhelper.BackgroundRoutePreloader.PreloadData;
+import de.bcersows.vaadinhelper.BackgroundRoutePreloader.RoutePreloader;
+import elemental.json.Json;
+
+public class BackgroundRoutePreloaderTest {
+    /** Counted down by the preloader, awaited by the view constructor. **/
+    private static volatile CountDownLatch preloadStarted;
+    /** If the view was constructed while the preload was running. **/
+    private static volatile boolean constructedWhilePreloading;
+    /** The amount of started preloads. **/
+    private static final AtomicInteger PRELOADS = new AtomicInteger();
+    /** The data applied by the views. **/
+    private static final List<String> APPLIED_DATA = new CopyOnWriteArrayList<>();
+    /** If the next preload fails unexpectedly. **/
+    private static final AtomicBoolean FAIL_NEXT_PRELOAD = new AtomicBoolean();
+
+    @BeforeEach
+    protected void setUp() throws Exception {
+        MockVaadin.setup(new Routes(Set.of(PreloadedView.class)));
+        VaadinTestHelper.prepareBackgroundLoading();
+
+        preloadStarted = new CountDownLatch(1);
+        constructedWhilePreloading = false;
+        PRELOADS.set(0);
+        APPLIED_DATA.clear();
+        FAIL_NEXT_PRELOAD.set(false);
+    }
+
+    @AfterEach
+    protected void tearDown() throws Exception {
+        MockVaadin.tearDown();
+    }
+
+    @Test
+    public void testStartPreloadedBackgroundLoading() throws Exception {
+        BackgroundRoutePreloader.install(UI.getCurrent());
+
+        UI.getCurrent().navigate(PreloadedView.class, new RouteParameters("id", "42"));
+        VaadinTestHelper.waitForBackgroundLoad();
+        VaadinTestHelper.flushVaadinAccessQueue();
+
+        assertTrue(constructedWhilePreloading, "preload started before the view was constructed");
+        assertEquals(1, PRELOADS.get(), "only preloaded, not loaded again");
+        assertEquals(List.of("person 42"), APPLIED_DATA, "preloaded data was applied");
+    }
+
+    @Test
+    public void testStartPreloadedBackgroundLoading_notInstalled() throws Exception {
+        // without the preloading, the view loads itself
+        preloadStarted.countDown();
+        UI.getCurrent().navigate(PreloadedView.class, new RouteParameters("id", "7"));
+        VaadinTestHelper.waitForBackgroundLoad();
+        VaadinTestHelper.flushVaadinAccessQueue();
+
+        assertEquals(1, PRELOADS.get(), "loaded by the view");
+        assertEquals(List.of("person 7"), APPLIED_DATA, "loaded data was applied");
+    }
+
+    @Test
+    public void testPrefetchOnIntent() throws Exception {
+        BackgroundRoutePreloader.install(UI.getCurrent());
+        final var link = new Div();
+        UI.getCurrent().add(link);
+        BackgroundRoutePreloader.prefetchOnIntent(link, PreloadedView.class, new RouteParameters("id", "5"));
+
+        // hovering twice only prefetches once
+        fireDomEvent(link, "mouseenter");
+        fireDomEvent(link, "mouseenter");
+        VaadinTestHelper.waitForBackgroundLoad();
+        VaadinTestHelper.flushVaadinAccessQueue();
+        assertEquals(1, PRELOADS.get(), "prefetched on hover");
+        assertEquals(List.of(), APPLIED_DATA, "nothing applied yet");
+
+        UI.getCurrent().navigate(PreloadedView.class, new RouteParameters("id", "5"));
+        VaadinTestHelper.waitForBackgroundLoad();
+        VaadinTestHelper.flushVaadinAccessQueue();
+
+        assertEquals(1, PRELOADS.get(), "navigation used the prefetched data");
+        assertEquals(List.of("person 5"), APPLIED_DATA, "prefetched data was applied");
+    }
+
+    @Test
+    public void testStartPreloadedBackgroundLoading_preloadFailed() throws Exception {
+        BackgroundRoutePreloader.install(UI.getCurrent());
+        FAIL_NEXT_PRELOAD.set(true);
+
+        UI.getCurrent().navigate(PreloadedView.class, new RouteParameters("id", "13"));
+        waitForOperationsFinished();
+
+        // the view's loading ended as well, instead of waiting for the failed preload forever
+        assertEquals(1, PRELOADS.get(), "preloaded once");
+        assertEquals(List.of(), APPLIED_DATA, "nothing applied");
+    }
+
+    @Test
+    public void testPrefetchOnIntent_prefetchFailed() throws Exception {
+        BackgroundRoutePreloader.install(UI.getCurrent());
+        final var link = new Div();
+        UI.getCurrent().add(link);
+        BackgroundRoutePreloader.prefetchOnIntent(link, PreloadedView.class, new RouteParameters("id", "6"));
+
+        FAIL_NEXT_PRELOAD.set(true);
+        fireDomEvent(link, "mouseenter");
+        waitForOperationsFinished();
+
+        // the failed prefetch isn't used, so the navigation loads again
+        UI.getCurrent().navigate(PreloadedView.class, new RouteParameters("id", "6"));
+        VaadinTestHelper.waitForBackgroundLoad();
+        VaadinTestHelper.flushVaadinAccessQueue();
+
+        assertEquals(2, PRELOADS.get(), "loaded again after the failed prefetch");
+        assertEquals(List.of("person 6"), APPLIED_DATA, "loaded data was applied");
+    }
+
+    @Test
+    public void testPrefetchOnIntent_rateLimited() throws Exception {
+        BackgroundRoutePreloader.install(UI.getCurrent());
+        final var firstLink = new Div();
+        final var secondLink = new Div();
+        UI.getCurrent().add(firstLink, secondLink);
+        BackgroundRoutePreloader.prefetchOnIntent(firstLink, PreloadedView.class, new RouteParameters("id", "8"));
+        BackgroundRoutePreloader.prefetchOnIntent(secondLink, PreloadedView.class, new RouteParameters("id", "9"));
+
+        try {
+            BackgroundLoadingHelper.setRateLimiter(new BackgroundRateLimiter(1, 0.001));
+
+            // sweeping over both links only prefetches within the rate limit
+            fireDomEvent(firstLink, "mouseenter");
+            fireDomEvent(secondLink, "mouseenter");
+            waitForOperationsFinished();
+            assertEquals(1, PRELOADS.get(), "second prefetch skipped");
+            NotificationsKt.expectNoNotifications();
+        } finally {
+            BackgroundLoadingHelper.setRateLimiter(null);
+        }
+
+        // the skipped prefetch isn't used, so the navigation loads itself
+        UI.getCurrent().navigate(PreloadedView.class, new RouteParameters("id", "9"));
+        VaadinTestHelper.waitForBackgroundLoad();
+        VaadinTestHelper.flushVaadinAccessQueue();
+
+        assertEquals(2, PRELOADS.get(), "loaded by the navigation");
+        assertEquals(List.of("person 9"), APPLIED_DATA, "loaded data was applied");
+    }
+
+    /** Wait until all background operations finished, flushing their UI updates. **/
+    private static void waitForOperationsFinished() throws InterruptedException {
+        for (int i = 0; i < 50 && BackgroundOperationRegistry.getInstance().getRunningOperations() > 0; i++) {
+            VaadinTestHelper.flushVaadinAccessQueue();
+        }
+        VaadinTestHelper.flushVaadinAccessQueue();
+        assertEquals(0, BackgroundOperationRegistry.getInstance().getRunningOperations(), "all operations finished");
+    }
+
+    /** Fire a DOM event on the component, as the browser would. **/
+    private static void fireDomEvent(final Component component, final String eventType) {
+        final var element = component.getElement();
+        element.getNode().getFeature(ElementListenerMap.class).fireEvent(new DomEvent(element, eventType, Json.createObject()));
+    }
+
+    @Route("person/:id")
+    @PreloadData(PersonPreloader.class)
+    public static class PreloadedView extends Div implements BeforeEnterObserver {
+        private static final long serialVersionUID = 1L;
+
+        public PreloadedView() throws InterruptedException {
+            constructedWhilePreloading = preloadStarted.await(5, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public void beforeEnter(final BeforeEnterEvent event) {
+            BackgroundRoutePreloader.<String> startPreloadedBackgroundLoading(event, APPLIED_DATA::add);
+        }
+    }
+
+    public static class PersonPreloader implements RoutePreloader<String> {
+        @Override
+        public String preload(final RouteParameters routeParameters) {
+            PRELOADS.incrementAndGet();
+            preloadStarted.countDown();
+            if (FAIL_NEXT_PRELOAD.getAndSet(false)) {
+                throw new IllegalStateException("Unexpected failure.");
+            }
+            return "person " + routeParameters.get("id").orElseThrow();
+        }
+    }
+}
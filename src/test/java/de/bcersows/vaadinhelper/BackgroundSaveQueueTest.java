@@ -0,0 +1,107 @@
+package de.bcersows.vaadinhelper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.mvysny.kaributesting.v10.MockVaadin;
+import com.vaadin.flow.component.UI;
+
+public class BackgroundSaveQueueTest {
+
+    private final List<Map<String, String>> savedBatches = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    protected void setUp() throws Exception {
+        MockVaadin.setup();
+        VaadinTestHelper.prepareBackgroundLoading();
+    }
+
+    @AfterEach
+    protected void tearDown() throws Exception {
+        MockVaadin.tearDown();
+    }
+
+    @Test
+    public void testEnqueue_coalescesUpdatesIntoSingleBatch() throws Exception {
+        final var saveQueue = new BackgroundSaveQueue<String, String, Integer>(Duration.ofMillis(50), updates -> {
+            savedBatches.add(updates);
+            return updates.size();
+        }, savedCount -> {
+            // nothing
+        });
+
+        saveQueue.enqueue("row-1", "first");
+        saveQueue.enqueue("row-2", "other");
+        saveQueue.enqueue("row-1", "latest");
+        assertEquals(2, saveQueue.getPendingUpdates(), "repeated key collapsed");
+
+        VaadinTestHelper.waitForBackgroundLoad();
+
+        assertEquals(1, savedBatches.size(), "a single batch saved");
+        assertEquals(Map.of("row-1", "latest", "row-2", "other"), savedBatches.get(0), "latest value per key saved");
+        assertEquals(0, saveQueue.getPendingUpdates(), "nothing pending anymore");
+    }
+
+    @Test
+    public void testFlush_savesRightAway() throws Exception {
+        final var saveQueue = new BackgroundSaveQueue<String, String, Integer>(Duration.ofHours(1), updates -> {
+            savedBatches.add(updates);
+            return updates.size();
+        }, savedCount -> {
+            // nothing
+        });
+
+        saveQueue.enqueue("row-1", "value");
+        saveQueue.flush();
+        VaadinTestHelper.waitForBackgroundLoad();
+
+        assertEquals(List.of(Map.of("row-1", "value")), savedBatches, "saved without waiting for the debounce");
+    }
+
+    @Test
+    public void testClose_rejectsFurtherUpdates() throws Exception {
+        final var saveQueue = new BackgroundSaveQueue<String, String, Integer>(Duration.ofHours(1), updates -> {
+            savedBatches.add(updates);
+            return updates.size();
+        }, savedCount -> {
+            // nothing
+        });
+        saveQueue.enqueue("row-1", "value");
+        saveQueue.close();
+        VaadinTestHelper.waitForBackgroundLoad();
+
+        assertEquals(List.of(Map.of("row-1", "value")), savedBatches, "saved on close");
+        // would be lost on detach, as the UI isn't watched anymore
+        assertThrows(IllegalStateException.class, () -> saveQueue.enqueue("row-2", "value"));
+    }
+
+    @Test
+    public void testDetach_savesPendingUpdates() throws Exception {
+        final var saveQueue = new BackgroundSaveQueue<String, String, Integer>(Duration.ofHours(1), updates -> {
+            savedBatches.add(updates);
+            return updates.size();
+        }, savedCount -> {
+            // nothing
+        });
+        saveQueue.enqueue("row-1", "value");
+
+        // e.g. on session expiry; nothing can be done on the UI anymore
+        final var ui = UI.getCurrent();
+        ui.getSession().removeUI(ui);
+        for (int i = 0; i < 50 && savedBatches.isEmpty(); i++) {
+            Thread.sleep(100);
+        }
+
+        assertEquals(List.of(Map.of("row-1", "value")), savedBatches, "saved without the UI");
+        assertEquals(0, saveQueue.getPendingUpdates(), "nothing pending anymore");
+    }
+}
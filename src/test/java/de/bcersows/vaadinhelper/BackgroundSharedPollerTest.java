@@ -0,0 +1,85 @@
+package de.bcersows.vaadinhelper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.mvysny.kaributesting.v10.MockVaadin;
+
+public class BackgroundSharedPollerTest {
+    /** The amount of polls. **/
+    private final AtomicInteger polls = new AtomicInteger();
+    /** The results pushed to the first subscriber. **/
+    private final List<String> firstResults = new CopyOnWriteArrayList<>();
+    /** The results pushed to the second subscriber. **/
+    private final List<String> secondResults = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    protected void setUp() throws Exception {
+        MockVaadin.setup();
+        VaadinTestHelper.prepareBackgroundLoading();
+    }
+
+    @AfterEach
+    protected void tearDown() throws Exception {
+        MockVaadin.tearDown();
+    }
+
+    @Test
+    public void testSubscribe_pollsOncePerKey() throws Exception {
+        final var poller = new BackgroundSharedPoller<String, String>(Duration.ofHours(1), key -> key + " " + this.polls.incrementAndGet());
+
+        poller.subscribe("cluster-1", this.firstResults::add);
+        poller.subscribe("cluster-1", this.secondResults::add);
+        waitForPoll();
+
+        assertEquals(1, this.polls.get(), "polled once for both subscribers");
+        assertEquals(List.of("cluster-1 1"), this.firstResults, "result pushed to the first subscriber");
+        assertEquals(List.of("cluster-1 1"), this.secondResults, "result pushed to the second subscriber");
+        assertEquals(2, poller.getSubscribers("cluster-1"), "both subscribers counted");
+
+        // a late subscriber gets the latest result right away
+        final var lateResults = new CopyOnWriteArrayList<String>();
+        poller.subscribe("cluster-1", lateResults::add);
+        assertEquals(List.of("cluster-1 1"), lateResults, "latest result applied");
+        assertEquals(1, this.polls.get(), "not polled again");
+    }
+
+    @Test
+    public void testUnsubscribe_stopsPolling() throws Exception {
+        final var poller = new BackgroundSharedPoller<String, String>(Duration.ofMillis(50), key -> key + " " + this.polls.incrementAndGet());
+
+        final var firstRegistration = poller.subscribe("cluster-2", this.firstResults::add);
+        final var secondRegistration = poller.subscribe("cluster-2", this.secondResults::add);
+        waitForPoll();
+
+        firstRegistration.remove();
+        assertEquals(1, poller.getSubscribers("cluster-2"), "one subscriber left");
+        final var firstResultsAfterRemoval = this.firstResults.size();
+        final var secondResultsAfterRemoval = this.secondResults.size();
+        waitForPoll();
+        assertEquals(firstResultsAfterRemoval, this.firstResults.size(), "no more results for the unsubscribed one");
+        assertTrue(this.secondResults.size() > secondResultsAfterRemoval, "still polled for the other one");
+
+        secondRegistration.remove();
+        assertEquals(0, poller.getSubscribers("cluster-2"), "no subscribers left");
+        Thread.sleep(100);
+        final var pollsAfterStop = this.polls.get();
+        Thread.sleep(300);
+        assertEquals(pollsAfterStop, this.polls.get(), "polling stopped");
+    }
+
+    /** Wait for the poll and flush its pushed results. **/
+    private static void waitForPoll() throws InterruptedException {
+        Thread.sleep(200);
+        VaadinTestHelper.flushVaadinAccessQueue();
+    }
+}
@@ -0,0 +1,68 @@
+package de.bcersows.vaadinhelper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import de.bcersows.vaadinhelper.BackgroundLoadingHelper.BackgroundLoadingException;
+import de.bcersows.vaadinhelper.BackgroundLoadingHelper.SplittableDataTask;
+import de.bcersows.vaadinhelper.BackgroundOperationManager.RestServiceException;
+
+public class BackgroundSplitComputationTest {
+
+    @Test
+    public void testCompute_splitsAndReportsProgress() throws Exception {
+        final var records = IntStream.rangeClosed(1, 100_000).boxed().collect(Collectors.toList());
+        final var computingThreads = ConcurrentHashMap.<String> newKeySet();
+        final var reportedProgress = new CopyOnWriteArrayList<Double>();
+
+        final var sum = BackgroundSplitComputation.compute(ForkJoinPool.commonPool(), records,
+                SplittableDataTask.<Integer, Long> ofList(1000, part -> {
+                    computingThreads.add(Thread.currentThread().getName());
+                    return part.stream().mapToLong(Integer::longValue).sum();
+                }, Long::sum), reportedProgress::add);
+
+        assertEquals(5_000_050_000L, sum, "merged result of all parts");
+        assertTrue(reportedProgress.size() > 1, "progress reported per part");
+        assertEquals(1.0, reportedProgress.stream().mapToDouble(Double::doubleValue).max().getAsDouble(), 0.0001, "completely computed");
+        assertTrue(computingThreads.stream().allMatch(name -> name.contains("ForkJoinPool")), "computed on the pool");
+    }
+
+    @Test
+    public void testCompute_failingPart() throws Exception {
+        final var splittableTask = new SplittableDataTask<List<Integer>, Integer>() {
+            @Override
+            public List<List<Integer>> split(final List<Integer> input) {
+                return input.size() > 1 ? List.of(input.subList(0, 1), input.subList(1, input.size())) : null;
+            }
+
+            @Override
+            public Integer compute(final List<Integer> input) throws RestServiceException {
+                if (input.contains(3)) {
+                    throw new BackgroundLoadingException("Invalid record.", "Record 3 is invalid.");
+                }
+                return input.get(0);
+            }
+
+            @Override
+            public Integer merge(final Integer left, final Integer right) {
+                return left + right;
+            }
+        };
+
+        final var exception = assertThrows(BackgroundLoadingException.class,
+                () -> BackgroundSplitComputation.compute(ForkJoinPool.commonPool(), List.of(1, 2, 3, 4), splittableTask, progress -> {
+                    // nothing
+                }));
+        assertEquals("Record 3 is invalid.", exception.getUserMessage(), "exception of the part passed on");
+    }
+}
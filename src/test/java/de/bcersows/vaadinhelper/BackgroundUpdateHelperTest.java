@@ -6,7 +6,11 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.SubmissionPublisher;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -23,10 +27,12 @@ import com.github.mvysny.kaributesting.v10.MockVaadin;
 import com.github.mvysny.kaributesting.v10.NotificationsKt;
 import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.html.Div;
+import com.vaadin.flow.component.html.Span;
 import com.vaadin.flow.component.progressbar.ProgressBar;
 import com.vaadin.flow.server.VaadinSession;
 
 import de.bcersows.vaadinhelper.BackgroundLoadingHelper.BackgroundLoadingException;
+import de.bcersows.vaadinhelper.BackgroundUpdateHelper.BackgroundUpdateConfiguration;
 import de.bcersows.vaadinhelper.helpers.LogHelper;
 import lombok.extern.slf4j.Slf4j;
 
@@ -190,6 +196,76 @@ public class BackgroundUpdateHelperTest {
         assertEquals(Div.class, loadingArea.get(1).rootClass, "modal content added - matching class");
     }
 
+    @Test
+    public void testStartBackgroundUpdate_inSessionOrder() throws Exception {
+        final var writtenValues = new CopyOnWriteArrayList<String>();
+        final var countDownLatchWritten = new CountDownLatch(2);
+
+        for (final var value : new String[] { "first", "second" }) {
+            BackgroundUpdateHelper.startBackgroundUpdate(value, funcInput -> {
+                // the first write is the slower one
+                if ("first".equals(funcInput)) {
+                    try {
+                        Thread.sleep(200);
+                    } catch (final InterruptedException e) {
+                        // nothing
+                    }
+                }
+                writtenValues.add(funcInput);
+                countDownLatchWritten.countDown();
+                return funcInput;
+            }, result -> log.info("Written: {}", result), null, BackgroundUpdateConfiguration.inSessionOrder());
+        }
+
+        assertTrue(countDownLatchWritten.await(3, TimeUnit.SECONDS), "both writes finished");
+        assertEquals(List.of("first", "second"), writtenValues, "written in submission order");
+    }
+
+    @Test
+    public void testStartAsyncBackgroundUpdate_withError() throws Exception {
+        final var pendingUpdate = new CompletableFuture<String>();
+
+        BackgroundUpdateHelper.startAsyncBackgroundUpdate(input, funcInput -> {
+            assertEquals(input, funcInput, "input was passed correctly");
+            return pendingUpdate;
+        }, result -> log.info("Test post"));
+        VaadinTestHelper.flushVaadinAccessQueue();
+
+        pendingUpdate.completeExceptionally(new BackgroundLoadingException("could not finish bg", "async error detected"));
+        VaadinTestHelper.waitForBackgroundLoad();
+
+        NotificationsKt.expectNotifications("async error detected");
+    }
+
+    @Test
+    public void testStartReactiveBackgroundUpdate() throws Exception {
+        final var resultStorage = new AtomicReference<String>();
+
+        try (final var publisher = new SubmissionPublisher<String>()) {
+            BackgroundUpdateHelper.startReactiveBackgroundUpdate(publisher, resultStorage::set, null, null);
+            VaadinTestHelper.flushVaadinAccessQueue();
+
+            // only subscribed once started
+            assertEquals(1, publisher.getNumberOfSubscribers(), "subscribed to the publisher");
+            publisher.submit("updated");
+        }
+        VaadinTestHelper.waitForBackgroundLoad();
+
+        assertEquals("updated", resultStorage.get(), "Result was received successfully");
+    }
+
+    @Test
+    public void testStartDetachedBackgroundUpdate() throws Exception {
+        // started from a thread without a UI, e.g. a nightly job
+        final var updatedData = CompletableFuture.supplyAsync(() -> {
+            assertNull(UI.getCurrent(), "no UI available");
+            return BackgroundUpdateHelper.startDetachedBackgroundUpdate(input, funcInput -> funcInput + " precomputed",
+                    BackgroundUpdateConfiguration.invalidating("report"));
+        }).get(5, TimeUnit.SECONDS);
+
+        assertEquals(input + " precomputed", updatedData.get(5, TimeUnit.SECONDS), "updated without a UI");
+    }
+
     @Nested
     public class ErrorTest {
         @Test
@@ -241,6 +317,53 @@ public class BackgroundUpdateHelperTest {
             assertEquals("error detected", foundException.getUserMessage());
         }
 
+        @Test
+        public void testOptimisticBackgroundUpdate_rolledBackOnError() throws InterruptedException {
+            final var field = new Span("old value");
+            UI.getCurrent().add(field);
+
+            BackgroundUpdateHelper.startOptimisticBackgroundUpdate(input, () -> {
+                final var previousText = field.getText();
+                field.setText("new value");
+                return () -> field.setText(previousText);
+            }, funcInput -> {
+                throw new BackgroundLoadingException("could not finish bg", "error detected");
+            }, result -> {
+                log.info("Test post");
+            });
+
+            // applied right away
+            assertEquals("new value", field.getText(), "change applied optimistically");
+
+            VaadinTestHelper.waitForBackgroundLoad();
+
+            assertEquals("old value", field.getText(), "change rolled back");
+            NotificationsKt.expectNotifications("error detected");
+        }
+
+        @Test
+        public void testOptimisticBackgroundUpdate_rolledBackOnUnexpectedFailure() throws InterruptedException {
+            final var field = new Span("old value");
+            UI.getCurrent().add(field);
+
+            BackgroundUpdateHelper.startOptimisticBackgroundUpdate(input, () -> {
+                final var previousText = field.getText();
+                field.setText("new value");
+                return () -> field.setText(previousText);
+            }, funcInput -> {
+                throw new IllegalStateException("unexpected failure");
+            }, result -> {
+                log.info("Test post");
+            });
+            assertEquals("new value", field.getText(), "change applied optimistically");
+
+            // nothing is reported to the UI, so wait for the rollback
+            for (int i = 0; i < 20 && !"old value".equals(field.getText()); i++) {
+                VaadinTestHelper.flushVaadinAccessQueue();
+            }
+            assertEquals("old value", field.getText(), "change rolled back");
+        }
+
         @Test
         public void testBackgroundOperation_with_Exception() throws InterruptedException {
             BackgroundUpdateHelper.startBackgroundUpdate(input, funcInput -> {
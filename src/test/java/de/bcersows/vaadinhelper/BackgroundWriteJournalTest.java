@@ -0,0 +1,103 @@
+package de.bcersows.vaadinhelper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.bcersows.vaadinhelper.BackgroundLoadingHelper.BackgroundLoadingException;
+import de.bcersows.vaadinhelper.BackgroundWriteJournal.JournalCodec;
+
+public class BackgroundWriteJournalTest {
+
+    @TempDir
+    protected Path tempDir;
+
+    private final List<List<String>> flushedBatches = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void testAppend_replayedAfterRestart() throws Exception {
+        final var journalFile = this.tempDir.resolve("updates.journal");
+
+        // the backend is down, so nothing can be flushed
+        try (final var journal = new BackgroundWriteJournal<String>(journalFile, JournalCodec.serializable(), batch -> {
+            throw new BackgroundLoadingException("Backend down.", "Backend down.");
+        }, Duration.ofHours(1))) {
+            journal.append("first");
+            journal.append("second");
+            assertThrows(BackgroundLoadingException.class, journal::flush);
+            assertEquals(2, journal.getPendingWrites(), "updates kept after failed flush");
+        }
+
+        // restarted, the journaled updates are replayed
+        try (final var journal = new BackgroundWriteJournal<String>(journalFile, JournalCodec.serializable(), batch -> flushedBatches.add(batch),
+                Duration.ofHours(1))) {
+            journal.flush();
+
+            assertEquals(List.of(List.of("first", "second")), flushedBatches, "replayed in a single batch");
+            assertEquals(0, journal.getPendingWrites(), "nothing pending anymore");
+        }
+    }
+
+    @Test
+    public void testFlush_reusesFileAfterFlushing() throws Exception {
+        try (final var journal = new BackgroundWriteJournal<String>(this.tempDir.resolve("updates.journal"), JournalCodec.serializable(),
+                batch -> flushedBatches.add(batch), Duration.ofHours(1))) {
+            journal.append("first");
+            journal.flush();
+            journal.append("second");
+            journal.flush();
+
+            assertEquals(List.of(List.of("first"), List.of("second")), flushedBatches, "flushed updates not flushed again");
+        }
+    }
+
+    @Test
+    public void testFlush_skipsCorruptRecord() throws Exception {
+        final var serializableCodec = JournalCodec.<String> serializable();
+        final var codec = new JournalCodec<String>() {
+            @Override
+            public byte[] encode(final String update) throws IOException {
+                return serializableCodec.encode(update);
+            }
+
+            @Override
+            public String decode(final byte[] payload) throws IOException {
+                final var update = serializableCodec.decode(payload);
+                if ("broken".equals(update)) {
+                    throw new IOException("Unknown format.");
+                }
+                return update;
+            }
+        };
+
+        try (final var journal = new BackgroundWriteJournal<String>(this.tempDir.resolve("updates.journal"), codec, batch -> flushedBatches.add(batch),
+                Duration.ofHours(1))) {
+            journal.append("first");
+            journal.append("broken");
+            journal.append("third");
+            journal.flush();
+
+            assertEquals(List.of(List.of("first", "third")), flushedBatches, "corrupt record skipped");
+            assertEquals(0, journal.getPendingWrites(), "nothing pending anymore");
+
+            // the journal isn't blocked
+            journal.append("fourth");
+            journal.flush();
+            assertEquals(List.of(List.of("first", "third"), List.of("fourth")), flushedBatches, "flushed afterwards");
+        }
+    }
+
+    @Test
+    public void testCreate_invalidFlushInterval() {
+        assertThrows(IllegalArgumentException.class, () -> new BackgroundWriteJournal<String>(this.tempDir.resolve("updates.journal"),
+                JournalCodec.serializable(), batch -> flushedBatches.add(batch), Duration.ZERO));
+    }
+}
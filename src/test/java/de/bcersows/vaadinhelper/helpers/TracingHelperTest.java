@@ -0,0 +1,65 @@
+package de.bcersows.vaadinhelper.helpers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.bcersows.vaadinhelper.helpers.TracingHelper.InMemorySpanExporter;
+
+public class TracingHelperTest {
+
+    private final InMemorySpanExporter exporter = new InMemorySpanExporter();
+
+    @BeforeEach
+    protected void setUp() throws Exception {
+        TracingHelper.setExporter(exporter);
+    }
+
+    @AfterEach
+    protected void tearDown() throws Exception {
+        TracingHelper.setExporter(null);
+    }
+
+    @Test
+    public void testStartSpan_disabled() throws Exception {
+        TracingHelper.setExporter(null);
+
+        assertNull(TracingHelper.startSpan("span", null), "no span without exporter");
+    }
+
+    @Test
+    public void testStartSpan_parentAndExport() throws Exception {
+        final var parent = TracingHelper.startSpan("parent", null);
+        final var child = TracingHelper.startSpan("child", parent);
+
+        assertEquals(parent.getTraceId(), child.getTraceId(), "same trace");
+        assertEquals(parent.getSpanId(), child.getParentSpanId(), "linked to parent");
+        assertNull(parent.getParentSpanId(), "root span");
+        assertEquals("00-" + child.getTraceId() + "-" + child.getSpanId() + "-01", child.getTraceparent());
+
+        child.end();
+        child.end();
+        assertEquals(1, exporter.getSpans().size(), "only exported once");
+        assertNotNull(exporter.getSpans("child").get(0).getDuration(), "duration set");
+    }
+
+    @Test
+    public void testActivate() throws Exception {
+        final var outer = TracingHelper.startSpan("outer", null);
+        final var inner = TracingHelper.startSpan("inner", outer);
+
+        try (final var outerScope = TracingHelper.activate(outer)) {
+            assertSame(outer, TracingHelper.getCurrentSpan());
+            try (final var innerScope = TracingHelper.activate(inner)) {
+                assertSame(inner, TracingHelper.getCurrentSpan());
+            }
+            assertSame(outer, TracingHelper.getCurrentSpan(), "restored the outer span");
+        }
+        assertNull(TracingHelper.getCurrentSpan(), "no span anymore");
+    }
+}